@@ -0,0 +1,87 @@
+package com.personal.karpo666.showcase.clients;
+
+import io.micrometer.core.instrument.Counter;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+
+/**
+ * {@link SSLContext} counting the TLS connections opened with it.
+ * <p>
+ * {@link java.net.http.HttpClient} does not tell when it opens a connection instead of reusing a pooled one, but it
+ * creates one {@link SSLEngine} per new TLS connection and none for reused ones. Counting those against the number
+ * of requests sent tells how many requests reused a connection. Everything else is left to the wrapped context.
+ */
+class ConnectionCountingSSLContext extends SSLContext {
+
+    ConnectionCountingSSLContext(SSLContext delegate, Counter connections) {
+        super(new Spi(delegate, connections), delegate.getProvider(), delegate.getProtocol());
+    }
+
+    private static class Spi extends SSLContextSpi {
+
+        private final SSLContext delegate;
+        private final Counter connections;
+
+        Spi(SSLContext delegate, Counter connections) {
+            this.delegate = delegate;
+            this.connections = connections;
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] keyManagers, TrustManager[] trustManagers, SecureRandom random) throws KeyManagementException {
+            delegate.init(keyManagers, trustManagers, random);
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return delegate.getSocketFactory();
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            connections.increment();
+            return delegate.createSSLEngine();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            connections.increment();
+            return delegate.createSSLEngine(host, port);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return delegate.getClientSessionContext();
+        }
+
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() {
+            return delegate.getDefaultSSLParameters();
+        }
+
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() {
+            return delegate.getSupportedSSLParameters();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.personal.karpo666.showcase.clients;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.smallrye.mutiny.Uni;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Sends a second, hedging request when the first one is slower than usual and uses whichever answers first.
+ * <p>
+ * "Slower than usual" is a percentile of the latencies of recent successful requests. Hedges are paid for with a
+ * budget that every request adds a fraction of a hedge to, so hedges can never add more than that fraction of extra
+ * load on the upstream, even when the upstream is slow across the board.
+ */
+public class Hedger {
+
+    // Latencies of this many recent requests are kept.
+    private static final int WINDOW = 1000;
+
+    // The percentile is recomputed after this many new latencies, instead of on every request.
+    private static final int RECOMPUTE_EVERY = 50;
+
+    // Budget is counted in thousandths of a hedge. At most this many hedges can be saved up for bursts.
+    private static final long HEDGE = 1000;
+    private static final long MAX_BUDGET = 10 * HEDGE;
+
+    private final double percentile;
+    private final long budgetPerRequest;
+    private final int minSamples;
+    private final long minDelayNanos;
+
+    private final long[] latencies = new long[WINDOW];
+    private int recorded;
+    private volatile long delayNanos = -1;
+
+    private final AtomicLong budget = new AtomicLong();
+
+    private final Counter sent;
+    private final Counter rejected;
+    private final Counter wins;
+
+    /**
+     * @param registry where hedging metrics are registered.
+     * @param operation name of the hedged operation. Used as a metric tag.
+     * @param percentile latency percentile after which a hedge is sent, e.g. 0.95.
+     * @param budget maximum ratio of hedges to requests, e.g. 0.05.
+     * @param minSamples how many latencies are needed before anything is hedged.
+     * @param minDelay hedges are never sent sooner than this.
+     */
+    public Hedger(MeterRegistry registry, String operation, double percentile, double budget, int minSamples, Duration minDelay) {
+        this.percentile = percentile;
+        this.budgetPerRequest = Math.round(budget * HEDGE);
+        this.minSamples = Math.max(1, Math.min(minSamples, WINDOW));
+        this.minDelayNanos = minDelay.toNanos();
+
+        this.sent = registry.counter("jsonplaceholder.hedge.requests", "operation", operation, "result", "sent");
+        this.rejected = registry.counter("jsonplaceholder.hedge.requests", "operation", operation, "result", "over-budget");
+        this.wins = registry.counter("jsonplaceholder.hedge.wins", "operation", operation);
+        registry.gauge("jsonplaceholder.hedge.delay", Tags.of("operation", operation), this,
+            hedger -> Math.max(0, hedger.delayNanos) / 1e9);
+    }
+
+    /**
+     * Execute a call, hedging it if it is slower than usual.
+     * @param call starts a new request on subscription. Must be safe to run twice at the same time.
+     * @return result of whichever request answers first. Fails if the first request fails before a hedge is sent
+     * or answers.
+     */
+    public <T> Uni<T> execute(Supplier<Uni<T>> call) {
+        deposit();
+
+        long delay = delayNanos;
+        Uni<T> primary = timed(call);
+
+        // Not enough latencies yet to know what is slow.
+        if (delay < 0) {
+            return primary;
+        }
+
+        Uni<T> hedge = Uni.createFrom().voidItem()
+            .onItem().delayIt().by(Duration.ofNanos(delay))
+            .onItem().transformToUni(ignored -> {
+                if (!withdraw()) {
+                    rejected.increment();
+                    return Uni.createFrom().<T>nothing();
+                }
+
+                sent.increment();
+                return timed(call).invoke(item -> wins.increment());
+            })
+        ;
+
+        // The request answering first wins and the other one is cancelled.
+        return Uni.combine().any().of(primary, hedge);
+    }
+
+    /**
+     * Execute a call without hedging it. Its latency still counts towards the delay and it still adds to the budget,
+     * so calls that must not be hedged, e.g. background refreshes, help to decide when to hedge the others.
+     * @param call starts a new request on subscription.
+     * @return result of the call.
+     */
+    public <T> Uni<T> measure(Supplier<Uni<T>> call) {
+        deposit();
+        return timed(call);
+    }
+
+    /**
+     * Current delay after which a hedge is sent.
+     * @return delay, or null if not enough requests have been made yet.
+     */
+    public Duration currentDelay() {
+        long delay = delayNanos;
+        return delay < 0 ? null : Duration.ofNanos(delay);
+    }
+
+    private <T> Uni<T> timed(Supplier<Uni<T>> call) {
+        return Uni.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            return call.get().invoke(item -> record(System.nanoTime() - start));
+        });
+    }
+
+    private synchronized void record(long latencyNanos) {
+        latencies[recorded % WINDOW] = latencyNanos;
+        recorded++;
+
+        if (recorded >= minSamples && (recorded == minSamples || recorded % RECOMPUTE_EVERY == 0)) {
+            long[] sorted = Arrays.copyOf(latencies, Math.min(recorded, WINDOW));
+            Arrays.sort(sorted);
+            int index = Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1);
+            delayNanos = Math.max(minDelayNanos, sorted[index]);
+        }
+    }
+
+    private void deposit() {
+        budget.getAndUpdate(current -> Math.min(MAX_BUDGET, current + budgetPerRequest));
+    }
+
+    private boolean withdraw() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < HEDGE) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - HEDGE));
+        return true;
+    }
+}
@@ -3,7 +3,21 @@ package com.personal.karpo666.showcase.clients;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.personal.karpo666.showcase.models.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.smallrye.faulttolerance.api.AsynchronousNonBlocking;
+import io.smallrye.faulttolerance.api.CircuitBreakerName;
+import io.smallrye.faulttolerance.api.ExponentialBackoff;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.HttpHeaders;
@@ -12,30 +26,111 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.faulttolerance.Bulkhead;
+import org.eclipse.microprofile.faulttolerance.CircuitBreaker;
+import org.eclipse.microprofile.faulttolerance.Retry;
+import org.eclipse.microprofile.faulttolerance.Timeout;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Class containing JsonPlaceholder client implementation.
+ * <p>
+ * Requests are sent asynchronously, so no thread is held while waiting for JsonPlaceholder to answer.
+ * Blocking variants are kept for callers that run on worker threads.
+ * <p>
+ * Asynchronous calls are guarded with fault tolerance: each attempt has a deadline, concurrent calls are limited
+ * by a bulkhead, failures caused by JsonPlaceholder being unavailable are retried with jittered exponential backoff
+ * and open a circuit breaker that fails fast until JsonPlaceholder recovers. Every parameter can be overridden with
+ * MicroProfile Fault Tolerance config, e.g. {@code JsonPlaceholderClient/getUserAsync/Timeout/value}.
+ * <p>
+ * Every attempt is traced with its own client span, and the trace context is sent along with the request.
  */
 @ApplicationScoped
 @Slf4j
 public class JsonPlaceholderClient {
 
+    public static final String USERS_CIRCUIT_BREAKER = "json-placeholder-users";
+    public static final String USER_CIRCUIT_BREAKER = "json-placeholder-user";
+
     @ConfigProperty(name = "json-placeholder.url.base", defaultValue = "https://jsonplaceholder.typicode.com")
     private String baseUrl;
 
     @ConfigProperty(name = "json-placeholder.url.users", defaultValue = "/users")
     private String usersPath;
 
+    @ConfigProperty(name = "json-placeholder.http.request-timeout", defaultValue = "10s")
+    Duration requestTimeout;
+
+    // Requests that a caller is waiting for are hedged when enabled. See Hedger for how the delay and budget are used.
+    @ConfigProperty(name = "json-placeholder.hedge.enabled", defaultValue = "false")
+    boolean hedgeEnabled;
+
+    @ConfigProperty(name = "json-placeholder.hedge.percentile", defaultValue = "0.95")
+    double hedgePercentile;
+
+    @ConfigProperty(name = "json-placeholder.hedge.budget", defaultValue = "0.05")
+    double hedgeBudget;
+
+    @ConfigProperty(name = "json-placeholder.hedge.min-samples", defaultValue = "100")
+    int hedgeMinSamples;
+
+    @ConfigProperty(name = "json-placeholder.hedge.min-delay", defaultValue = "10ms")
+    Duration hedgeMinDelay;
+
     @Inject
     ObjectMapper mapper;
 
+    @Inject
+    HttpClient httpClient;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    @Inject
+    Tracer tracer;
+
+    private Hedger usersHedger;
+    private Hedger userHedger;
+
+    // Timers are looked up on every request, so they are kept here instead of being rebuilt by the registry each time.
+    private final Map<String, Timer> requestTimers = new ConcurrentHashMap<>();
+
+    // Readers are immutable and thread-safe, so they are built once and reused for every response.
+    private ObjectReader usersReader;
+    private ObjectReader userReader;
+
+    @PostConstruct
+    void init() {
+        usersReader = mapper.readerFor(new TypeReference<List<User>>() {});
+        userReader = mapper.readerFor(User.class);
+        usersHedger = new Hedger(registry, "get-users", hedgePercentile, hedgeBudget, hedgeMinSamples, hedgeMinDelay);
+        userHedger = new Hedger(registry, "get-user", hedgePercentile, hedgeBudget, hedgeMinSamples, hedgeMinDelay);
+    }
+
     /**
      * Get all users.
      * @return a list of {@link User}.
@@ -43,122 +138,359 @@ public class JsonPlaceholderClient {
      * @throws JsonProcessingException if Jackson fails to read received json-string.
      */
     public List<User> getUsers() throws JsonPlaceHolderRestException, JsonProcessingException {
+        return await(getUsersAsync());
+    }
+
+    /**
+     * Get user with given id.
+     * @param userId id with which we do the query.
+     * @return {@link User}.
+     * @throws JsonPlaceHolderRestException if rest operation fails or returns something other than 200-OK.
+     * @throws JsonProcessingException if Jackson fails to read received json-string.
+     */
+    public User getUser(String userId) throws JsonPlaceHolderRestException, JsonProcessingException {
+        return await(getUserAsync(userId));
+    }
+
+    /**
+     * Get all users without blocking the calling thread.
+     * @return a list of {@link User} wrapped in {@link Uni}. Fails with {@link JsonPlaceHolderRestException}
+     * if rest operation fails or returns something other than 200-OK and with {@link JsonProcessingException}
+     * if Jackson fails to read received json-string.
+     */
+    public Uni<List<User>> getUsersAsync() {
+        return getUsersAsync(null, true).map(UsersResponse::users);
+    }
+
+    /**
+     * Get all users unless they have not changed since the caller last fetched them.
+     * @param etag ETag of the users the caller already has. Null if it has none.
+     * @param hedged whether the request may be hedged. Should be false when nobody is waiting for the answer,
+     * e.g. when refreshing users in the background.
+     * @return {@link UsersResponse} wrapped in {@link Uni}. Users are null if JsonPlaceholder responded with
+     * 304-Not Modified. Fails like {@link #getUsersAsync()} otherwise.
+     */
+    @AsynchronousNonBlocking
+    @Bulkhead(value = 10, waitingTaskQueue = 50)
+    @Timeout(value = 4, unit = ChronoUnit.SECONDS)
+    @CircuitBreaker(
+        requestVolumeThreshold = 20,
+        failureRatio = 0.5,
+        delay = 10,
+        delayUnit = ChronoUnit.SECONDS,
+        successThreshold = 2,
+        failOn = {UpstreamUnavailableException.class, TimeoutException.class}
+    )
+    @CircuitBreakerName(USERS_CIRCUIT_BREAKER)
+    @Retry(maxRetries = 2, delay = 200, jitter = 100, retryOn = {UpstreamUnavailableException.class, TimeoutException.class})
+    @ExponentialBackoff(maxDelay = 2, maxDelayUnit = ChronoUnit.SECONDS)
+    public Uni<UsersResponse> getUsersAsync(String etag, boolean hedged) {
         log.debug("Fetching all users.");
 
         // Construct url.
         URI uri = URI.create(baseUrl + usersPath);
 
-        // Build request.
-        HttpRequest request = HttpRequest.newBuilder()
-            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
-            .uri(uri)
-            .GET()
-            .build()
-        ;
+        Supplier<Uni<HttpResponse<byte[]>>> request = () -> send(uri, "get-users", "all users", etag);
 
-        HttpResponse<String> response = null;
+        return hedge(usersHedger, request, hedged).onItem().transformToUni(response -> {
+            if (response.statusCode() == 304) {
+                return Uni.createFrom().item(new UsersResponse(null, etag, null));
+            }
 
-        // Attempt to send request.
-        try {
-            response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+            String responseETag = response.headers().firstValue(HttpHeaders.ETAG).orElse(null);
+            return JsonPlaceholderClient.<List<User>>read(usersReader, response.body())
+                .map(users -> new UsersResponse(users, responseETag, contentHash(response.body())));
+        });
+    }
 
-        } catch(InterruptedException e) {
-            log.error("Thread was interrupted when sending a request for all users.");
-            Thread.currentThread().interrupt();
-        } catch(IOException e) {
-            log.error("Exception occurred when sending a request for all users");
-        }
+    /**
+     * Get user with given id without blocking the calling thread.
+     * @param userId id with which we do the query.
+     * @return {@link User} wrapped in {@link Uni}. Fails with {@link JsonPlaceHolderRestException}
+     * if rest operation fails or returns something other than 200-OK and with {@link JsonProcessingException}
+     * if Jackson fails to read received json-string.
+     */
+    @AsynchronousNonBlocking
+    @Bulkhead(value = 10, waitingTaskQueue = 50)
+    @Timeout(value = 4, unit = ChronoUnit.SECONDS)
+    @CircuitBreaker(
+        requestVolumeThreshold = 20,
+        failureRatio = 0.5,
+        delay = 10,
+        delayUnit = ChronoUnit.SECONDS,
+        successThreshold = 2,
+        failOn = {UpstreamUnavailableException.class, TimeoutException.class}
+    )
+    @CircuitBreakerName(USER_CIRCUIT_BREAKER)
+    @Retry(maxRetries = 2, delay = 200, jitter = 100, retryOn = {UpstreamUnavailableException.class, TimeoutException.class})
+    @ExponentialBackoff(maxDelay = 2, maxDelayUnit = ChronoUnit.SECONDS)
+    public Uni<User> getUserAsync(String userId) {
+        log.debug("Fetching user with id: {}.", userId);
 
-        // Handle possible nulls and status codes other than 200-OK.
-        if (response == null) {
-            throw new JsonPlaceHolderRestException(
-                "No response was received from JsonPlaceHolder when requesting all users.",
-                500
-            );
-        }
+        // Construct url.
+        URI uri = URI.create(baseUrl + usersPath + "/" + userId);
 
-        if (response.statusCode() != 200) {
-            throw new JsonPlaceHolderRestException(
-                String.format("JsonPlaceholder responded with status code %s when fetching all users", response.statusCode()),
-                response.statusCode()
-            );
-        }
+        Supplier<Uni<HttpResponse<byte[]>>> request = () -> send(uri, "get-user", "user with id: " + userId, null);
 
-        if (response.body() == null || response.body().isEmpty()) {
-            throw new JsonPlaceHolderRestException(
-                String.format("JsonPlaceholder responded with status code %s and a null or empty body when fetching all users", response.statusCode()),
-                response.statusCode()
-            );
+        return hedge(userHedger, request, true)
+            .onItem().transformToUni(response -> read(userReader, response.body()))
+        ;
+    }
+
+    /**
+     * Send a request through a hedger if hedging is enabled.
+     * @param hedger hedger of the operation.
+     * @param request starts a new request on subscription.
+     * @param hedged whether this request may be hedged. Its latency is recorded either way.
+     * @return response of whichever request answers first wrapped in {@link Uni}.
+     */
+    private <T> Uni<T> hedge(Hedger hedger, Supplier<Uni<T>> request, boolean hedged) {
+        if (!hedgeEnabled) {
+            return request.get();
         }
 
-        return mapper.readValue(response.body(), new TypeReference<>() {});
+        return hedged ? hedger.execute(request) : hedger.measure(request);
     }
 
     /**
-     * Get user with given id.
-     * @param userId id with which we do the query.
-     * @return {@link User}.
-     * @throws JsonPlaceHolderRestException if rest operation fails or returns something other than 200-OK.
-     * @throws JsonProcessingException if Jackson fails to read received json-string.
+     * Send a GET-request and validate the response.
+     * <p>
+     * The body is kept as raw bytes, which Jackson parses directly without decoding them to a string first.
+     * Every request is timed, tagged with the operation and the status code of the response, and traced.
+     * @param uri where the request is sent.
+     * @param operation name of the operation. Used as a metric tag.
+     * @param target description of what is being fetched. Used in logs and exception messages.
+     * @param etag sent as If-None-Match when not null. 304-Not Modified is then accepted as a valid response.
+     * @return response with a non-empty body, or a 304-Not Modified response, wrapped in {@link Uni}.
      */
-    public User getUser(String userId) throws JsonPlaceHolderRestException, JsonProcessingException {
-        log.debug("Fetching user with id: {}.", userId);
+    private Uni<HttpResponse<byte[]>> send(URI uri, String operation, String target, String etag) {
+        return Uni.createFrom().deferred(() -> {
 
-        // Construct url.
-        URI uri = URI.create(baseUrl + usersPath + "/" + userId);
+                // Every attempt gets its own span, so retries and hedges show up separately.
+                Span span = tracer.spanBuilder("GET " + operation)
+                    .setSpanKind(SpanKind.CLIENT)
+                    .setAttribute("http.method", "GET")
+                    .setAttribute("http.url", uri.toString())
+                    .setAttribute("net.peer.name", uri.getHost())
+                    .startSpan()
+                ;
 
-        // Build request.
-        HttpRequest request = HttpRequest.newBuilder()
-            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
-            .uri(uri)
-            .GET()
-            .build()
+                // Build request.
+                HttpRequest.Builder builder = HttpRequest.newBuilder()
+                    .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                    .uri(uri)
+                    .timeout(requestTimeout)
+                    .GET()
+                ;
+                if (etag != null) {
+                    builder.header(HttpHeaders.IF_NONE_MATCH, etag);
+                }
+                openTelemetry.getPropagators().getTextMapPropagator()
+                    .inject(Context.current().with(span), builder, HttpRequest.Builder::header);
+                HttpRequest request = builder.build();
+
+                Timer.Sample sample = Timer.start(registry);
+                return Uni.createFrom().completionStage(() -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()))
+                    .onItemOrFailure().invoke((response, failure) -> {
+                        sample.stop(requestTimer(operation, failure == null ? String.valueOf(response.statusCode()) : "IO_ERROR"));
+                        endSpan(span, response, failure);
+                    })
+                    .onCancellation().invoke(() -> {
+                        sample.stop(requestTimer(operation, "CANCELLED"));
+                        span.setAttribute("cancelled", true);
+                        span.end();
+                    })
+                ;
+            })
+            .onFailure().transform(e -> {
+                log.error("Exception occurred when fetching {}.", target, e);
+                return new UpstreamUnavailableException(
+                    String.format("No response was received from JsonPlaceHolder when fetching %s: %s", target, e.getMessage()),
+                    502
+                );
+            })
+            .onItem().transformToUni(response -> {
+
+                // Nothing has changed since the given ETag.
+                if (etag != null && response.statusCode() == 304) {
+                    return Uni.createFrom().item(response);
+                }
+
+                // JsonPlaceholder is overloaded or failing. Worth retrying later.
+                if (response.statusCode() >= 500 || response.statusCode() == 429) {
+                    return Uni.createFrom().failure(new UpstreamUnavailableException(
+                        String.format("JsonPlaceholder responded with status code %s when fetching %s", response.statusCode(), target),
+                        response.statusCode()
+                    ));
+                }
+
+                // Handle status codes other than 200-OK.
+                if (response.statusCode() != 200) {
+                    return Uni.createFrom().failure(new JsonPlaceHolderRestException(
+                        String.format("JsonPlaceholder responded with status code %s when fetching %s", response.statusCode(), target),
+                        response.statusCode()
+                    ));
+                }
+
+                if (response.body() == null || response.body().length == 0) {
+                    return Uni.createFrom().failure(new JsonPlaceHolderRestException(
+                        String.format(
+                            "JsonPlaceholder responded with status code %s and a null or empty body when fetching %s",
+                            response.statusCode(),
+                            target
+                        ),
+                        response.statusCode()
+                    ));
+                }
+
+                return Uni.createFrom().item(response);
+            })
         ;
+    }
 
-        HttpResponse<String> response = null;
+    /**
+     * End the span of a request with the outcome of the request.
+     * @param span span of the request.
+     * @param response received response. Null if the request failed.
+     * @param failure why no response was received. Null if the request succeeded.
+     */
+    private static void endSpan(Span span, HttpResponse<byte[]> response, Throwable failure) {
+        if (failure != null) {
+            span.recordException(failure);
+            span.setStatus(StatusCode.ERROR, failure.getMessage());
+        } else {
+            span.setAttribute("http.status_code", response.statusCode());
+            if (response.statusCode() >= 400 && response.statusCode() != 404) {
+                span.setStatus(StatusCode.ERROR);
+            }
+        }
+        span.end();
+    }
+
+    /**
+     * Timer for requests of an operation that ended with given status.
+     * @param operation name of the operation.
+     * @param status status code of the response, or what happened instead of a response.
+     * @return registered {@link Timer}.
+     */
+    private Timer requestTimer(String operation, String status) {
+        return requestTimers.computeIfAbsent(operation + "/" + status, key -> Timer.builder("jsonplaceholder.client.requests")
+            .tags("operation", operation, "status", status)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .publishPercentileHistogram()
+            .register(registry)
+        );
+    }
 
-        // Attempt to send request.
+    /**
+     * Hash a response body. Used as a validator of the content when JsonPlaceholder does not send an ETag we can use.
+     * @param body raw response body.
+     * @return url-safe base64 of the first 16 bytes of the SHA-256 digest of the body.
+     */
+    static String contentHash(byte[] body) {
         try {
-            response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
 
-        } catch(InterruptedException e) {
-            log.error("Thread was interrupted when fetching user with id: {}.", userId);
-            Thread.currentThread().interrupt();
-        } catch(IOException e) {
-            log.error("Exception occurred when fetching user with id: {}.", userId);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
         }
+    }
+
+    /**
+     * Parse a response body.
+     * @param reader reader for the expected type.
+     * @param body raw response body.
+     * @return parsed body wrapped in {@link Uni}. Fails with {@link JsonProcessingException} if body is not valid.
+     */
+    private static <T> Uni<T> read(ObjectReader reader, byte[] body) {
+        try {
+            T value = reader.readValue(body);
+            return Uni.createFrom().item(value);
 
-        // Handle possible nulls and status codes other than 200-OK.
-        if (response == null) {
-            throw new JsonPlaceHolderRestException(
-                String.format("No response was received from JsonPlaceHolder when fetching user with id: %s.", userId),
-                500
-            );
+        } catch (JsonProcessingException e) {
+            return Uni.createFrom().failure(e);
+        } catch (IOException e) {
+            // Reading from a byte array does no actual I/O, so this is not expected to happen.
+            return Uni.createFrom().failure(new UncheckedIOException(e));
         }
+    }
+
+    /**
+     * Wait for the result of an asynchronous JsonPlaceholder operation.
+     * @param uni operation to wait for.
+     * @return result of the operation.
+     * @throws JsonPlaceHolderRestException if rest operation failed, with status code 503 or 504 if fault tolerance
+     * rejected or timed out the operation.
+     * @throws JsonProcessingException if Jackson failed to read received json-string.
+     */
+    public static <T> T await(Uni<T> uni) throws JsonPlaceHolderRestException, JsonProcessingException {
+        try {
+            return uni.await().indefinitely();
+
+        } catch (FaultToleranceException e) {
+            // Unchecked failures are rethrown as they are, without wrapping them.
+            throw toRestException(e);
 
-        if (response.statusCode() != 200) {
-            throw new JsonPlaceHolderRestException(
-                String.format(
-                    "JsonPlaceholder responded with status code %s when fetching user with id: %s",
-                    response.statusCode(),
-                    userId
-                ),
-                response.statusCode()
-            );
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+
+            if (cause instanceof JsonPlaceHolderRestException restException) {
+                throw restException;
+            }
+            if (cause instanceof JsonProcessingException processingException) {
+                throw processingException;
+            }
+            if (cause instanceof InterruptedException) {
+                log.error("Thread was interrupted when waiting for JsonPlaceholder.");
+                Thread.currentThread().interrupt();
+                throw new JsonPlaceHolderRestException("Interrupted when waiting for JsonPlaceholder.", 500);
+            }
+            throw e;
         }
+    }
 
-        if (response.body() == null || response.body().isEmpty()) {
-            throw new JsonPlaceHolderRestException(
-                String.format(
-                    "JsonPlaceholder responded with status code %s and a null or empty body when fetching user with id: %s",
-                    response.statusCode(),
-                    userId
-                ),
-                response.statusCode()
-            );
+    /**
+     * Convert a failure raised by fault tolerance before or instead of calling JsonPlaceholder.
+     * @param e exception raised by fault tolerance.
+     * @return {@link JsonPlaceHolderRestException} with status code 504 if the call timed out and 503 otherwise.
+     */
+    public static JsonPlaceHolderRestException toRestException(FaultToleranceException e) {
+        if (e instanceof TimeoutException) {
+            return new JsonPlaceHolderRestException("JsonPlaceholder did not respond in time.", 504);
         }
+        if (e instanceof CircuitBreakerOpenException) {
+            return new JsonPlaceHolderRestException("JsonPlaceholder is unavailable. Circuit breaker is open.", 503);
+        }
+        return new JsonPlaceHolderRestException("Too many concurrent requests to JsonPlaceholder: " + e.getMessage(), 503);
+    }
+
+    /**
+     * Wait for the result of an already started asynchronous JsonPlaceholder operation.
+     * @param future operation to wait for.
+     * @return result of the operation.
+     * @throws JsonPlaceHolderRestException if rest operation failed.
+     * @throws JsonProcessingException if Jackson failed to read received json-string.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws JsonPlaceHolderRestException, JsonProcessingException {
+        return await(Uni.createFrom().completionStage(future));
+    }
 
-        return mapper.readValue(response.body(), User.class);
+    /**
+     * Users fetched with a conditional request.
+     * @param users users in the order JsonPlaceholder returned them. Null if they have not changed.
+     * @param etag ETag of the users as sent by JsonPlaceholder. Null if it sent none.
+     * @param contentHash hash of the response body. Null if the users have not changed.
+     */
+    public record UsersResponse(List<User> users, String etag, String contentHash) {
+
+        public boolean notModified() {
+            return users == null;
+        }
     }
 
     /**
@@ -175,4 +507,16 @@ public class JsonPlaceholderClient {
             this.statusCode = statusCode;
         }
     }
+
+    /**
+     * Thrown when JsonPlaceholder could not be reached or answered with an error on its side.
+     * Only these failures are retried and counted by the circuit breakers.
+     */
+    @EqualsAndHashCode(callSuper = true)
+    public static class UpstreamUnavailableException extends JsonPlaceHolderRestException {
+
+        public UpstreamUnavailableException(String message, int statusCode) {
+            super(message, statusCode);
+        }
+    }
 }
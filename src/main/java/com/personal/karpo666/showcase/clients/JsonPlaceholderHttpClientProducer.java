@@ -0,0 +1,107 @@
+package com.personal.karpo666.showcase.clients;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.net.ssl.SSLContext;
+import java.net.http.HttpClient;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Produces the single {@link HttpClient} shared by all requests made to JsonPlaceholder.
+ * <p>
+ * The client keeps its connections alive between requests and multiplexes them over HTTP/2 when the upstream
+ * supports it, so only the first request pays for the TCP connect and TLS handshake. New TLS connections are counted
+ * in {@code jsonplaceholder.http.connections}, so every request counted in {@code jsonplaceholder.client.requests}
+ * beyond them reused a pooled connection.
+ */
+@Singleton
+@Slf4j
+public class JsonPlaceholderHttpClientProducer {
+
+    @ConfigProperty(name = "json-placeholder.http.version", defaultValue = "HTTP_2")
+    HttpClient.Version version;
+
+    @ConfigProperty(name = "json-placeholder.http.connect-timeout", defaultValue = "5s")
+    Duration connectTimeout;
+
+    @ConfigProperty(name = "json-placeholder.http.executor-threads", defaultValue = "8")
+    int executorThreads;
+
+    @Inject
+    MeterRegistry registry;
+
+    private ExecutorService executor;
+
+    /**
+     * Build the shared client.
+     * @return {@link HttpClient} used for every JsonPlaceholder request.
+     */
+    @Produces
+    @Singleton
+    HttpClient httpClient() {
+        log.info("Creating JsonPlaceholder http client. Version: {}, connect timeout: {}, executor threads: {}.",
+            version, connectTimeout, executorThreads);
+
+        executor = Executors.newFixedThreadPool(executorThreads, new NamedThreadFactory());
+
+        Counter connections = Counter.builder("jsonplaceholder.http.connections")
+            .description("TLS connections opened to JsonPlaceholder.")
+            .register(registry);
+
+        return HttpClient.newBuilder()
+            .sslContext(new ConnectionCountingSSLContext(defaultSslContext(), connections))
+            .version(version)
+            .connectTimeout(connectTimeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(executor)
+            .build()
+        ;
+    }
+
+    private static SSLContext defaultSslContext() {
+        try {
+            return SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No default TLS context available.", e);
+        }
+    }
+
+    /**
+     * Release the executor of the shared client when the application shuts down.
+     * @param client the disposed client.
+     */
+    void close(@Disposes HttpClient client) {
+        log.debug("Shutting down JsonPlaceholder http client executor.");
+
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Names the executor threads so they are recognizable in thread dumps.
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "json-placeholder-http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
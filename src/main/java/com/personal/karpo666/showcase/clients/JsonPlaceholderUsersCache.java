@@ -0,0 +1,380 @@
+package com.personal.karpo666.showcase.clients;
+
+import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserSearch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory cache of all users in JsonPlaceholder.
+ * <p>
+ * JsonPlaceholder only has a handful of users that never change, so the whole user list is kept in memory and
+ * single users are served from it. Entries younger than the ttl are served as is. Older entries are served while
+ * a refresh runs in the background, until they are older than ttl + stale-while-revalidate, after which callers
+ * wait for a fresh list. Refreshes are conditional requests, so an unchanged list is not downloaded again.
+ * <p>
+ * Each list is indexed by the searchable fields of {@link UserSearch} when it is fetched, so searches look up
+ * matching users instead of scanning the list.
+ * <p>
+ * If that refresh fails, e.g. because the circuit breaker of the client is open, the expired list is served instead
+ * of failing, as long as stale-if-error is enabled. Callers only see the failure when nothing has been cached yet.
+ * <p>
+ * A list bigger than the max size is not kept. Only its validators are, as a marker that the list is uncacheable,
+ * so single users are looked up from JsonPlaceholder directly without downloading the list first. The marker
+ * expires and is revalidated like any other snapshot.
+ */
+@ApplicationScoped
+@Slf4j
+public class JsonPlaceholderUsersCache {
+
+    private static final String USERS_KEY = "users";
+    private static final String UNCACHEABLE_USERS_KEY = "uncacheable-users";
+
+    @ConfigProperty(name = "json-placeholder.cache.ttl", defaultValue = "10m")
+    Duration ttl;
+
+    @ConfigProperty(name = "json-placeholder.cache.stale-while-revalidate", defaultValue = "1h")
+    Duration staleWhileRevalidate;
+
+    @ConfigProperty(name = "json-placeholder.cache.max-size", defaultValue = "1000")
+    int maxSize;
+
+    @ConfigProperty(name = "json-placeholder.cache.stale-if-error", defaultValue = "true")
+    boolean staleIfError;
+
+    @Inject
+    JsonPlaceholderClient client;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    // Makes sure only one refresh is running at a time and that concurrent callers share it.
+    private SingleFlight<String, Snapshot> refreshes;
+
+    // Single user lookups used when the user list is too big to be cached.
+    private SingleFlight<String, User> userLookups;
+
+    private Counter hits;
+    private Counter staleHits;
+    private Counter misses;
+    private Counter staleIfErrorHits;
+    private Counter successfulRefreshes;
+    private Counter notModifiedRefreshes;
+    private Counter failedRefreshes;
+
+    @PostConstruct
+    void init() {
+        refreshes = new SingleFlight<>(registry, "get-users");
+        userLookups = new SingleFlight<>(registry, "get-user");
+
+        hits = registry.counter("jsonplaceholder.cache.requests", "result", "hit");
+        staleHits = registry.counter("jsonplaceholder.cache.requests", "result", "stale");
+        misses = registry.counter("jsonplaceholder.cache.requests", "result", "miss");
+        staleIfErrorHits = registry.counter("jsonplaceholder.cache.requests", "result", "stale-if-error");
+        successfulRefreshes = registry.counter("jsonplaceholder.cache.refreshes", "outcome", "success");
+        notModifiedRefreshes = registry.counter("jsonplaceholder.cache.refreshes", "outcome", "not-modified");
+        failedRefreshes = registry.counter("jsonplaceholder.cache.refreshes", "outcome", "failure");
+        registry.gauge("jsonplaceholder.cache.size", snapshot, reference -> {
+            Snapshot current = reference.get();
+            return current == null || !current.cached() ? 0 : current.users().size();
+        });
+    }
+
+    /**
+     * Get all users in JsonPlaceholder.
+     * @return a list of {@link User} wrapped in {@link Uni}. Fails like {@link JsonPlaceholderClient#getUsersAsync()}
+     * if the users are not cached and fetching them fails.
+     */
+    public Uni<List<User>> getUsers() {
+        return users().map(Snapshot::users);
+    }
+
+    /**
+     * Get user with given id from JsonPlaceholder.
+     * @param userId id with which we do the query.
+     * @return {@link User} wrapped in {@link Uni}. Fails with
+     * {@link JsonPlaceholderClient.JsonPlaceHolderRestException} with status code 404 if user is not found.
+     */
+    public Uni<User> getUser(String userId) {
+        return snapshot().onItem().transformToUni(current -> {
+
+            // The list is too big to be cached. Ask JsonPlaceholder for the single user instead.
+            if (!current.cached()) {
+                return userLookups.execute(userId, () -> client.getUserAsync(userId));
+            }
+
+            User user = current.usersById().get(userId);
+            if (user == null) {
+                return Uni.createFrom().failure(new JsonPlaceholderClient.JsonPlaceHolderRestException(
+                    String.format("User with id: %s was not found in JsonPlaceholder.", userId),
+                    404
+                ));
+            }
+
+            return Uni.createFrom().item(user);
+        });
+    }
+
+    /**
+     * Search users in JsonPlaceholder.
+     * @param search criteria the users must match.
+     * @return matching users in the order JsonPlaceholder returned them, wrapped in {@link Uni}. Fails like
+     * {@link #getUsers()}.
+     */
+    public Uni<List<User>> search(UserSearch search) {
+        return users().map(current -> current.search(search));
+    }
+
+    /**
+     * Get the users already cached without fetching anything, even if they have expired.
+     * JsonPlaceholder users never change, so an expired copy is still good enough e.g. for seeding a user in mongodb.
+     * @return users keyed by their id wrapped in {@link Optional}. Empty if no users are cached.
+     */
+    public Optional<Map<String, User>> peek() {
+        Snapshot current = snapshot.get();
+        return current == null || !current.cached() ? Optional.empty() : Optional.of(current.usersById());
+    }
+
+    /**
+     * Get a validator for all users in JsonPlaceholder. Changes whenever the users change.
+     * @return hash of the users wrapped in {@link Uni}. Fails like {@link #getUsers()}.
+     */
+    public Uni<String> getUsersETag() {
+        return snapshot().map(Snapshot::contentHash);
+    }
+
+    /**
+     * Get a validator for user with given id from JsonPlaceholder, without copying or hashing the user.
+     * @param userId id with which we do the query.
+     * @return validator wrapped in {@link Uni}. Null if the users are too many to be cached. Fails with
+     * {@link JsonPlaceholderClient.JsonPlaceHolderRestException} with status code 404 if user is not found.
+     */
+    public Uni<String> getUserETag(String userId) {
+        return snapshot().onItem().transformToUni(current -> {
+            if (!current.cached()) {
+                return Uni.createFrom().nullItem();
+            }
+
+            if (!current.usersById().containsKey(userId)) {
+                return Uni.createFrom().failure(new JsonPlaceholderClient.JsonPlaceHolderRestException(
+                    String.format("User with id: %s was not found in JsonPlaceholder.", userId),
+                    404
+                ));
+            }
+
+            // The hash of the whole list changes whenever this user does.
+            return Uni.createFrom().item(current.contentHash() + "." + userId);
+        });
+    }
+
+    /**
+     * Get a usable snapshot of JsonPlaceholder users, fetching a new one if needed.
+     * @return {@link Snapshot} wrapped in {@link Uni}.
+     */
+    private Uni<Snapshot> snapshot() {
+        Snapshot current = snapshot.get();
+
+        if (current != null) {
+            Duration age = Duration.ofNanos(System.nanoTime() - current.fetchedAt());
+
+            // Fresh enough to be served as is.
+            if (age.compareTo(ttl) < 0) {
+                hits.increment();
+                return Uni.createFrom().item(current);
+            }
+
+            // Stale, but can still be served while a new list is fetched in the background.
+            if (age.compareTo(ttl.plus(staleWhileRevalidate)) < 0) {
+                staleHits.increment();
+                refresh(false).subscribe().with(fetched -> {}, failure -> {});
+                return Uni.createFrom().item(current);
+            }
+        }
+
+        misses.increment();
+        if (current == null || !staleIfError) {
+            return refresh(true);
+        }
+
+        // JsonPlaceholder is failing. Expired users are better than no users at all.
+        return refresh(true).onFailure().recoverWithItem(failure -> {
+            log.warn("Serving expired JsonPlaceholder users because refreshing failed: {}", failure.getMessage());
+            staleIfErrorHits.increment();
+            return current;
+        });
+    }
+
+    /**
+     * Get a snapshot that includes the users themselves. Downloads the whole list if it is too big to be cached.
+     * @return {@link Snapshot} with users wrapped in {@link Uni}.
+     */
+    private Uni<Snapshot> users() {
+        return snapshot().onItem().transformToUni(current -> {
+            if (current.users() != null) {
+                return Uni.createFrom().item(current);
+            }
+
+            // Only the validators of an uncacheable list are kept, so a conditional request would not help.
+            return refreshes.execute(UNCACHEABLE_USERS_KEY, () -> fetch(null, true));
+        });
+    }
+
+    /**
+     * Fetch users from JsonPlaceholder unless a fetch is already in progress.
+     * @param hedged whether a caller is waiting for the users, so a slow request may be hedged. A caller joining a
+     * background refresh that is already in progress waits for it as is.
+     * @return the pending refresh wrapped in {@link Uni}.
+     */
+    private Uni<Snapshot> refresh(boolean hedged) {
+        return refreshes.execute(USERS_KEY, () -> {
+            log.debug("Refreshing JsonPlaceholder users.");
+
+            // Users we already have are only downloaded again if they have changed.
+            return fetch(snapshot.get(), hedged);
+        });
+    }
+
+    /**
+     * Fetch users from JsonPlaceholder and store the result.
+     * @param previous snapshot to revalidate. Null to download the list unconditionally.
+     * @param hedged whether a slow request may be hedged.
+     * @return fetched snapshot wrapped in {@link Uni}. Includes the users even if they were too many to be stored.
+     */
+    private Uni<Snapshot> fetch(Snapshot previous, boolean hedged) {
+        String etag = previous == null ? null : previous.etag();
+
+        return client.getUsersAsync(etag, hedged)
+            .map(response -> {
+                if (response.notModified() && previous != null) {
+                    Snapshot renewed = previous.renewed();
+                    snapshot.set(renewed);
+                    notModifiedRefreshes.increment();
+                    return renewed;
+                }
+
+                List<User> users = response.users();
+                Snapshot fetched = Snapshot.of(users, users.size() <= maxSize, response.etag(), response.contentHash());
+                if (fetched.cached()) {
+                    snapshot.set(fetched);
+                } else {
+                    log.warn("JsonPlaceholder returned {} users which exceeds the cache max size of {}.", users.size(), maxSize);
+                    snapshot.set(fetched.uncacheable());
+                }
+                successfulRefreshes.increment();
+                return fetched;
+            })
+            .onFailure().invoke(failure -> {
+                log.warn("Refreshing JsonPlaceholder users failed: {}", failure.getMessage());
+                failedRefreshes.increment();
+            })
+        ;
+    }
+
+    /**
+     * Users fetched from JsonPlaceholder at a specific moment.
+     * @param users users in the order JsonPlaceholder returned them. Null if the list was too big to be kept.
+     * @param usersById same users keyed by their id. Empty if the list was too big to be cached.
+     * @param fetchedAt {@link System#nanoTime()} at the moment of fetching.
+     * @param cached whether this snapshot was small enough to be cached.
+     * @param etag ETag sent by JsonPlaceholder. Sent back when refreshing. Null if JsonPlaceholder sent none.
+     * @param contentHash hash of the response body the users were read from.
+     * @param searchIndex users keyed by the normalized value of each searchable field, keyed by the field. Empty if
+     * the list was too big to be cached.
+     */
+    private record Snapshot(
+        List<User> users,
+        Map<String, User> usersById,
+        long fetchedAt,
+        boolean cached,
+        String etag,
+        String contentHash,
+        Map<String, Map<String, List<User>>> searchIndex
+    ) {
+
+        static Snapshot of(List<User> users, boolean cached, String etag, String contentHash) {
+            if (!cached) {
+                return new Snapshot(List.copyOf(users), Map.of(), System.nanoTime(), false, etag, contentHash, Map.of());
+            }
+
+            Map<String, User> usersById = new LinkedHashMap<>();
+            users.forEach(user -> usersById.put(user.getUserId(), user));
+
+            Map<String, Map<String, List<User>>> searchIndex = new HashMap<>();
+            UserSearch.FIELDS.forEach((path, field) -> {
+                Map<String, List<User>> usersByValue = new HashMap<>();
+                for (User user : users) {
+                    String value = field.apply(user);
+                    if (value != null) {
+                        usersByValue.computeIfAbsent(UserSearch.normalize(value), key -> new ArrayList<>()).add(user);
+                    }
+                }
+                searchIndex.put(path, usersByValue);
+            });
+
+            return new Snapshot(
+                List.copyOf(users),
+                Collections.unmodifiableMap(usersById),
+                System.nanoTime(),
+                cached,
+                etag,
+                contentHash,
+                searchIndex
+            );
+        }
+
+        /**
+         * Find users matching a search. Only the users indexed under the rarest searched value are checked.
+         * @param search criteria the users must match.
+         * @return matching users in the order JsonPlaceholder returned them.
+         */
+        List<User> search(UserSearch search) {
+            List<User> candidates = users;
+            if (!cached) {
+                return candidates.stream().filter(search::matches).toList();
+            }
+
+            for (Map.Entry<String, String> criterion : search.criteria().entrySet()) {
+                List<User> indexed = searchIndex.get(criterion.getKey()).getOrDefault(UserSearch.normalize(criterion.getValue()), List.of());
+                if (indexed.size() < candidates.size()) {
+                    candidates = indexed;
+                }
+            }
+
+            return candidates.stream().filter(search::matches).toList();
+        }
+
+        /**
+         * Same users, confirmed to be up-to-date at this moment.
+         * @return copy of this snapshot with a new fetch time.
+         */
+        Snapshot renewed() {
+            return new Snapshot(users, usersById, System.nanoTime(), cached, etag, contentHash, searchIndex);
+        }
+
+        /**
+         * Marker kept in place of a list too big to be cached.
+         * @return copy of this snapshot with only the validators.
+         */
+        Snapshot uncacheable() {
+            return new Snapshot(null, Map.of(), fetchedAt, false, etag, contentHash, Map.of());
+        }
+    }
+}
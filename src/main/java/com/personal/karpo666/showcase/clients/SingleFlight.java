@@ -0,0 +1,85 @@
+package com.personal.karpo666.showcase.clients;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent executions of the same operation.
+ * <p>
+ * The first caller for a key starts the operation and every caller arriving while it is still running shares its
+ * result or failure. Once the operation completes the key is released, so later callers start a new execution.
+ * Bookkeeping is done with a {@link ConcurrentHashMap}, so callers with different keys never contend on a lock.
+ * @param <K> type of the key identifying the operation.
+ * @param <V> type of the operation result.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter executions;
+    private final Counter coalesced;
+
+    /**
+     * @param registry where execution metrics are registered.
+     * @param operation name of the operation. Used as a metric tag.
+     */
+    public SingleFlight(MeterRegistry registry, String operation) {
+        this.executions = registry.counter("jsonplaceholder.singleflight.calls", "operation", operation, "result", "executed");
+        this.coalesced = registry.counter("jsonplaceholder.singleflight.calls", "operation", operation, "result", "coalesced");
+    }
+
+    /**
+     * Execute the operation for given key, or join an execution already in progress.
+     * @param key identifies the operation.
+     * @param operation started if no execution is in progress for the key.
+     * @return result of the operation wrapped in {@link Uni}. The operation is started on subscription.
+     */
+    public Uni<V> execute(K key, Supplier<Uni<V>> operation) {
+        return Uni.createFrom().completionStage(() -> join(key, operation));
+    }
+
+    /**
+     * Number of operations currently in progress.
+     * @return number of keys with a pending execution.
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private CompletableFuture<V> join(K key, Supplier<Uni<V>> operation) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+
+        if (existing != null) {
+            coalesced.increment();
+
+            // Every caller gets its own copy, so that one caller cancelling does not cancel the shared execution.
+            return existing.copy();
+        }
+
+        executions.increment();
+        try {
+            operation.get().subscribe().with(
+                item -> {
+                    inFlight.remove(key, created);
+                    created.complete(item);
+                },
+                failure -> {
+                    inFlight.remove(key, created);
+                    created.completeExceptionally(failure);
+                }
+            );
+        } catch (RuntimeException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+
+        return created.copy();
+    }
+}
@@ -0,0 +1,46 @@
+package com.personal.karpo666.showcase.health;
+
+import com.personal.karpo666.showcase.clients.JsonPlaceholderClient;
+import io.smallrye.faulttolerance.api.CircuitBreakerMaintenance;
+import io.smallrye.faulttolerance.api.CircuitBreakerState;
+import io.smallrye.health.api.Wellness;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+
+import java.util.List;
+
+/**
+ * Reports whether JsonPlaceholder is reachable, based on the circuit breakers of {@link JsonPlaceholderClient}.
+ * <p>
+ * This is a wellness check instead of a readiness check, because users are still served from mongodb and the
+ * cache while JsonPlaceholder is down. Taking the application out of rotation would only make things worse.
+ */
+@Wellness
+@ApplicationScoped
+public class JsonPlaceholderHealthCheck implements HealthCheck {
+
+    private static final List<String> CIRCUIT_BREAKERS = List.of(
+        JsonPlaceholderClient.USERS_CIRCUIT_BREAKER,
+        JsonPlaceholderClient.USER_CIRCUIT_BREAKER
+    );
+
+    @Inject
+    CircuitBreakerMaintenance circuitBreakers;
+
+    @Override
+    public HealthCheckResponse call() {
+        var response = HealthCheckResponse.named("json-placeholder").up();
+
+        for (String name : CIRCUIT_BREAKERS) {
+            CircuitBreakerState state = circuitBreakers.currentState(name);
+            response.withData(name, state.name());
+            if (state == CircuitBreakerState.OPEN) {
+                response.down();
+            }
+        }
+
+        return response.build();
+    }
+}
@@ -0,0 +1,37 @@
+package com.personal.karpo666.showcase.health;
+
+import com.personal.karpo666.showcase.services.UserIndexes;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+/**
+ * Keeps the application out of rotation until the indexes of the users collection exist.
+ * Reports why they cannot be created if retrying will not help.
+ */
+@Readiness
+@ApplicationScoped
+public class UserIndexesHealthCheck implements HealthCheck {
+
+    @Inject
+    UserIndexes userIndexes;
+
+    @Override
+    public HealthCheckResponse call() {
+        HealthCheckResponseBuilder response = HealthCheckResponse.named("users-indexes")
+            .status(userIndexes.isReady())
+        ;
+
+        userIndexes.getFailure().ifPresent(failure -> {
+            response.withData("failure", failure.message());
+            if (!failure.duplicateUserIds().isEmpty()) {
+                response.withData("duplicateUserIds", String.join(",", failure.duplicateUserIds()));
+            }
+        });
+
+        return response.build();
+    }
+}
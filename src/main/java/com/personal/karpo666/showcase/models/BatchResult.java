@@ -0,0 +1,33 @@
+package com.personal.karpo666.showcase.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Result of a single user in a batch operation.")
+public class BatchResult {
+
+    @Schema(description = "Position of the user in the request array.")
+    private int index;
+
+    @Schema(description = "User id. Empty if no id could be determined.")
+    private String id;
+
+    @Schema(description = "Status code of the operation, as if the user was sent on its own.")
+    private int status;
+
+    @Schema(description = "Reason of a failure. Empty if the operation succeeded.")
+    private String message;
+
+    public static BatchResult success(int index, String id, int status) {
+        return new BatchResult(index, id, status, null);
+    }
+
+    public static BatchResult failure(int index, String id, int status, String message) {
+        return new BatchResult(index, id, status, message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.personal.karpo666.showcase.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Usage statistics of a mongodb index.")
+public class IndexUsage {
+
+    @Schema(description = "Name of the index.")
+    private String name;
+
+    @Schema(description = "Fields covered by the index.")
+    private List<String> fields;
+
+    @Schema(description = "How many operations have used the index.")
+    private long operations;
+
+    @Schema(description = "Since when operations have been counted. Counting restarts when mongodb restarts.")
+    private Instant since;
+}
@@ -1,17 +1,35 @@
 package com.personal.karpo666.showcase.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CollationStrength;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
 import io.quarkus.mongodb.panache.PanacheMongoEntity;
 import io.quarkus.mongodb.panache.common.MongoEntity;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWrapper;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @EqualsAndHashCode(callSuper = true)
 @Data
@@ -21,6 +39,22 @@ import java.util.Optional;
 @Schema(description = "Info about a user.")
 public class User extends PanacheMongoEntity{
 
+    /**
+     * Collation ordering user ids by their numeric value. Used whenever users are sorted by id in mongodb.
+     * See {@link UserIdComparator} for the matching in-memory ordering of ids consisting of digits.
+     */
+    public static final Collation USER_ID_ORDER = Collation.builder().locale("en").numericOrdering(true).build();
+
+    /**
+     * Filter matching users whose id consists of digits, the only ids that are ordered, see {@link UserIdComparator}.
+     */
+    public static final Bson NUMERIC_USER_ID = Filters.regex("userId", "^[0-9]+$");
+
+    /**
+     * Collation comparing strings ignoring case. Used when searching users, see {@link UserSearch}.
+     */
+    public static final Collation CASE_INSENSITIVE = Collation.builder().locale("en").collationStrength(CollationStrength.SECONDARY).build();
+
     @Schema(description = "User id. Left empty when creating new user.")
     @JsonProperty("id")
     private String userId;
@@ -49,6 +83,11 @@ public class User extends PanacheMongoEntity{
     @Schema(description = "Additional info about the user.")
     private AdditionalInfo additionalInfo;
 
+    // Changed on every write. Used to build the ETag of the user without hashing it.
+    @JsonIgnore
+    @Schema(hidden = true)
+    private String version;
+
     /**
      * Find user in database and return it wrapped to an optional.
      * @param userId which we query with.
@@ -58,6 +97,173 @@ public class User extends PanacheMongoEntity{
         return find("userId", userId).firstResultOptional();
     }
 
+    /**
+     * Find user in database reading only some of its fields.
+     * @param userId which we query with.
+     * @param projection fields read from mongodb. All fields are read if null.
+     * @return {@link User} wrapped in {@link Optional}. Fields left out of the projection are null.
+     */
+    public static Optional<User> findByUserId(String userId, Bson projection) {
+        if (projection == null) {
+            return findByUserId(userId);
+        }
+
+        return Optional.ofNullable(User.<User>mongoCollection().find(Filters.eq("userId", userId)).projection(projection).first());
+    }
+
+    /**
+     * Find all users in database reading only some of their fields.
+     * @param projection fields read from mongodb. All fields are read if null.
+     * @return a list of {@link User}. Fields left out of the projection are null.
+     */
+    public static List<User> listAllProjected(Bson projection) {
+        if (projection == null) {
+            return listAll();
+        }
+
+        return User.<User>mongoCollection().find().projection(projection).into(new ArrayList<>());
+    }
+
+    /**
+     * Find the version of user in database without reading the rest of the user.
+     * Users saved before versions were introduced are versioned by their mongodb id.
+     * @param userId which we query with.
+     * @return version wrapped in {@link Optional}. Empty if user is not found.
+     */
+    public static Optional<String> findVersion(String userId) {
+        Document document = mongoCollection().withDocumentClass(Document.class)
+            .find(Filters.eq("userId", userId))
+            .projection(Projections.include("version"))
+            .first()
+        ;
+
+        if (document == null) {
+            return Optional.empty();
+        }
+        String version = document.getString("version");
+        return Optional.of(version != null ? version : document.getObjectId("_id").toHexString());
+    }
+
+    /**
+     * Find a page of users ordered by user id. Only users with ids consisting of digits are paged, see
+     * {@link UserIdComparator}.
+     * @param after only users with an id greater than this are returned. Starts from the beginning if null.
+     * @param limit maximum number of users returned.
+     * @return a list of {@link User} ordered by user id.
+     */
+    public static List<User> findPageAfter(String after, int limit) {
+        return findPageAfter(after, limit, null);
+    }
+
+    /**
+     * Find a page of users ordered by user id reading only some of their fields. Only users with ids consisting of
+     * digits are paged, since no other ids can be ordered consistently with JsonPlaceholder users.
+     * @param after only users with an id greater than this are returned. Starts from the beginning if null.
+     * @param limit maximum number of users returned.
+     * @param projection fields read from mongodb. All fields are read if null.
+     * @return a list of {@link User} ordered by user id. Fields left out of the projection are null.
+     */
+    public static List<User> findPageAfter(String after, int limit, Bson projection) {
+        Bson filter = after == null ? NUMERIC_USER_ID : Filters.and(NUMERIC_USER_ID, Filters.gt("userId", after));
+
+        return User.<User>mongoCollection()
+            .find(filter)
+            .sort(Sorts.ascending("userId"))
+            .collation(USER_ID_ORDER)
+            .limit(limit)
+            .projection(projection)
+            .into(new ArrayList<>(limit));
+    }
+
+    /**
+     * Find users matching a search. Fields are compared ignoring case, which uses the search indexes.
+     * @param search criteria the users must match.
+     * @param limit maximum number of users returned.
+     * @return a list of matching {@link User}.
+     */
+    public static List<User> findMatching(UserSearch search, int limit) {
+        return User.<User>mongoCollection()
+            .find(search.filter())
+            .collation(CASE_INSENSITIVE)
+            .limit(limit)
+            .into(new ArrayList<>());
+    }
+
+    /**
+     * Find which of the given user ids are saved in mongodb. Only user ids are read from the database.
+     * @param userIds ids to look for.
+     * @return subset of the given ids found in mongodb.
+     */
+    public static Set<String> findUserIdsIn(Collection<String> userIds) {
+        Set<String> found = new HashSet<>();
+        if (userIds.isEmpty()) {
+            return found;
+        }
+
+        mongoCollection().withDocumentClass(Document.class)
+            .find(Filters.in("userId", userIds))
+            .projection(Projections.fields(Projections.include("userId"), Projections.excludeId()))
+            .forEach(document -> found.add(document.getString("userId")));
+
+        return found;
+    }
+
+    /**
+     * Find the mongodb ids of users with the given user ids. Only ids are read from the database.
+     * @param userIds ids to look for.
+     * @return mongodb ids keyed by user id, for the given ids found in mongodb.
+     */
+    public static Map<String, ObjectId> findObjectIdsIn(Collection<String> userIds) {
+        Map<String, ObjectId> found = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return found;
+        }
+
+        mongoCollection().withDocumentClass(Document.class)
+            .find(Filters.in("userId", userIds))
+            .projection(Projections.include("userId"))
+            .forEach(document -> found.put(document.getString("userId"), document.getObjectId("_id")));
+
+        return found;
+    }
+
+    /**
+     * Open a cursor over all users. Users are read from mongodb in batches as the cursor is iterated.
+     * @param batchSize how many users are read from mongodb at a time.
+     * @return {@link MongoCursor} that must be closed by the caller.
+     */
+    public static MongoCursor<User> openCursor(int batchSize) {
+        return User.<User>mongoCollection().find().batchSize(batchSize).cursor();
+    }
+
+    /**
+     * Flatten the fields set on a user to dot-separated paths as they are saved in mongodb, e.g. {@code address.city}.
+     * Null fields are left out, so the result can be used to update only the fields that were given.
+     * @param user user whose fields are read.
+     * @return non-null leaf fields keyed by their path. The mongodb id, user id and version are left out.
+     */
+    public static BsonDocument leafFields(User user) {
+        BsonDocument document = BsonDocumentWrapper.asBsonDocument(user, mongoCollection().getCodecRegistry());
+        document.remove("_id");
+        document.remove("userId");
+        document.remove("version");
+
+        BsonDocument fields = new BsonDocument();
+        flatten("", document, fields);
+        return fields;
+    }
+
+    private static void flatten(String prefix, BsonDocument document, BsonDocument fields) {
+        for (Map.Entry<String, BsonValue> field : document.entrySet()) {
+            String path = prefix + field.getKey();
+            if (field.getValue().isDocument()) {
+                flatten(path + ".", field.getValue().asDocument(), fields);
+            } else if (!field.getValue().isNull()) {
+                fields.put(path, field.getValue());
+            }
+        }
+    }
+
     /**
      * Setter for id used by mongodb.
      * @param id new userId as {@link ObjectId}.
@@ -111,7 +317,7 @@ public class User extends PanacheMongoEntity{
         private String archEnemy;
 
         @Schema(description = "How many dogs the user wishes to own one day.")
-        private int amountOfDogsTheyHopeToOwnOneDay;
+        private Integer amountOfDogsTheyHopeToOwnOneDay;
 
         @Schema(description = "User's greatest fear.")
         private String greatestFear;
@@ -0,0 +1,162 @@
+package com.personal.karpo666.showcase.models;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.mongodb.client.model.Projections;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Fields of {@link User} requested by a client, e.g. {@code id,name,email} or {@code address.city}.
+ * <p>
+ * Paths are json property names separated by dots. The same fields are read from mongodb with a projection and
+ * written to json with a {@link PropertyFilter}, so users from mongodb and JsonPlaceholder look the same.
+ */
+public final class UserFields {
+
+    /**
+     * Id of the filter applied to {@link User} and its nested classes when only some fields are written.
+     */
+    public static final String FILTER = "userFields";
+
+    // Every path that can be requested. Kept in sync with the json properties of User and its nested classes.
+    static final Set<String> PATHS = Set.of(
+        "id", "name", "username", "email", "phone", "website",
+        "address", "address.street", "address.suite", "address.city", "address.zipCode", "address.geo",
+        "company", "company.name", "company.catchPhrase", "company.bs",
+        "additionalInfo", "additionalInfo.favouriteColor", "additionalInfo.archEnemy",
+        "additionalInfo.amountOfDogsTheyHopeToOwnOneDay", "additionalInfo.greatestFear"
+    );
+
+    private final SortedSet<String> paths;
+
+    // Objects containing a requested path. Written, but only with their requested fields.
+    private final Set<String> parents = new HashSet<>();
+
+    private UserFields(SortedSet<String> paths) {
+        this.paths = paths;
+        for (String path : paths) {
+            for (int dot = path.indexOf('.'); dot > 0; dot = path.indexOf('.', dot + 1)) {
+                parents.add(path.substring(0, dot));
+            }
+        }
+    }
+
+    /**
+     * Parse the value of a fields -query parameter.
+     * @param fields comma-separated paths.
+     * @return requested fields. Null if no fields are given, meaning all of them. Paths of objects that are
+     * requested as a whole are dropped.
+     * @throws IllegalArgumentException if a path is not a field of {@link User}.
+     */
+    public static UserFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+
+        SortedSet<String> paths = new TreeSet<>();
+        for (String field : fields.split(",")) {
+            String path = field.trim();
+            if (path.isEmpty()) {
+                continue;
+            }
+            if (!PATHS.contains(path)) {
+                throw new IllegalArgumentException(String.format("Unknown field: %s.", path));
+            }
+            paths.add(path);
+        }
+
+        // A requested object includes all of its fields. Mongodb rejects projecting both with a path collision.
+        paths.removeIf(path -> hasRequestedParent(paths, path));
+
+        return paths.isEmpty() ? null : new UserFields(paths);
+    }
+
+    private static boolean hasRequestedParent(Set<String> paths, String path) {
+        for (int dot = path.lastIndexOf('.'); dot > 0; dot = path.lastIndexOf('.', dot - 1)) {
+            if (paths.contains(path.substring(0, dot))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Projection reading only the requested fields from mongodb. The user id is always read, since users are
+     * merged and ordered by it.
+     * @return projection of the requested fields.
+     */
+    public Bson projection() {
+        List<String> mongoPaths = new ArrayList<>(paths.size() + 1);
+        mongoPaths.add("userId");
+        paths.stream().filter(path -> !path.equals("id")).forEach(mongoPaths::add);
+        return Projections.include(mongoPaths);
+    }
+
+    /**
+     * Check whether a field is written.
+     * @param path path of the field.
+     * @return true if the field, one of its parents or one of its children is requested.
+     */
+    public boolean includes(String path) {
+        if (paths.contains(path) || parents.contains(path)) {
+            return true;
+        }
+        for (int dot = path.lastIndexOf('.'); dot > 0; dot = path.lastIndexOf('.', dot - 1)) {
+            if (paths.contains(path.substring(0, dot))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Filter writing only the requested fields. Registered with the id {@link #FILTER}.
+     * @return {@link PropertyFilter} of the requested fields.
+     */
+    public PropertyFilter filter() {
+        return new SimpleBeanPropertyFilter() {
+
+            @Override
+            public void serializeAsField(Object pojo, JsonGenerator generator, SerializerProvider provider, PropertyWriter writer)
+                throws Exception {
+                if (includes(path(generator, writer))) {
+                    writer.serializeAsField(pojo, generator, provider);
+                } else if (!generator.canOmitFields()) {
+                    writer.serializeAsOmittedField(pojo, generator, provider);
+                }
+            }
+        };
+    }
+
+    /**
+     * Path of the field being written, built from the names of the objects it is nested in.
+     */
+    private static String path(JsonGenerator generator, PropertyWriter writer) {
+        StringBuilder path = new StringBuilder(writer.getName());
+        for (JsonStreamContext context = generator.getOutputContext().getParent(); context != null; context = context.getParent()) {
+            if (context.inObject() && context.getCurrentName() != null) {
+                path.insert(0, '.').insert(0, context.getCurrentName());
+            }
+        }
+        return path.toString();
+    }
+
+    /**
+     * @return requested paths in a canonical order, separated by commas.
+     */
+    @Override
+    public String toString() {
+        return String.join(",", paths);
+    }
+}
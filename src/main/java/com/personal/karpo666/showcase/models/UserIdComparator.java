@@ -0,0 +1,67 @@
+package com.personal.karpo666.showcase.models;
+
+import java.util.Comparator;
+
+/**
+ * Orders user ids by their numeric value, like mongodb does with {@link User#USER_ID_ORDER}.
+ * <p>
+ * The collation itself is ICU's, which also compares letters, case and accents in ways plain Java cannot reproduce.
+ * The orders are only guaranteed to agree for ids consisting of digits, so only those are accepted. Created users get
+ * the next free number and JsonPlaceholder users are numbered as well, but users saved by other means can have any id,
+ * so callers leave out ids rejected by {@link #isUserId(String)} before ordering, see {@link User#NUMERIC_USER_ID}.
+ * Numbers are compared digit by digit, so ids of any length are supported, and leading zeros are ignored like the
+ * collation ignores them.
+ */
+public class UserIdComparator implements Comparator<String> {
+
+    public static final UserIdComparator INSTANCE = new UserIdComparator();
+
+    private UserIdComparator() {}
+
+    /**
+     * @param value possible user id.
+     * @return whether the value is a user id this comparator can order, i.e. consists of digits only.
+     */
+    public static boolean isUserId(String value) {
+        return value != null && isNumber(value);
+    }
+
+    /**
+     * @throws IllegalArgumentException if either id does not consist of digits only.
+     */
+    @Override
+    public int compare(String first, String second) {
+        if (!isUserId(first) || !isUserId(second)) {
+            throw new IllegalArgumentException(String.format("User ids must consist of digits only: %s, %s", first, second));
+        }
+
+        String firstDigits = stripLeadingZeros(first);
+        String secondDigits = stripLeadingZeros(second);
+
+        // A longer number is always bigger. Numbers of equal length compare like strings.
+        if (firstDigits.length() != secondDigits.length()) {
+            return Integer.compare(firstDigits.length(), secondDigits.length());
+        }
+        return firstDigits.compareTo(secondDigits);
+    }
+
+    private static boolean isNumber(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String stripLeadingZeros(String value) {
+        int start = 0;
+        while (start < value.length() - 1 && value.charAt(start) == '0') {
+            start++;
+        }
+        return value.substring(start);
+    }
+}
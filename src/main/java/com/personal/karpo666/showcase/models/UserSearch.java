@@ -0,0 +1,102 @@
+package com.personal.karpo666.showcase.models;
+
+import com.mongodb.client.model.Filters;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Criteria of a user search. Every given field must match and values are compared ignoring case, like
+ * {@link User#CASE_INSENSITIVE} does in mongodb.
+ * @param username searched username. Ignored if null.
+ * @param email searched email. Ignored if null.
+ * @param city searched city of the address. Ignored if null.
+ * @param company searched name of the company. Ignored if null.
+ */
+public record UserSearch(String username, String email, String city, String company) {
+
+    /**
+     * Searchable fields keyed by their path in mongodb.
+     */
+    public static final Map<String, Function<User, String>> FIELDS = fields();
+
+    private static Map<String, Function<User, String>> fields() {
+        Map<String, Function<User, String>> fields = new LinkedHashMap<>();
+        fields.put("username", User::getUsername);
+        fields.put("email", User::getEmail);
+        fields.put("address.city", user -> user.getAddress() == null ? null : user.getAddress().getCity());
+        fields.put("company.name", user -> user.getCompany() == null ? null : user.getCompany().getName());
+        return fields;
+    }
+
+    /**
+     * Build a search from query parameters.
+     * @return search, or null if no criteria are given.
+     */
+    public static UserSearch of(String username, String email, String city, String company) {
+        UserSearch search = new UserSearch(blankToNull(username), blankToNull(email), blankToNull(city), blankToNull(company));
+        return search.criteria().isEmpty() ? null : search;
+    }
+
+    /**
+     * Given criteria.
+     * @return searched values keyed by their path in mongodb.
+     */
+    public Map<String, String> criteria() {
+        Map<String, String> criteria = new LinkedHashMap<>();
+        put(criteria, "username", username);
+        put(criteria, "email", email);
+        put(criteria, "address.city", city);
+        put(criteria, "company.name", company);
+        return criteria;
+    }
+
+    /**
+     * Filter for mongodb. Only ignores case when queried with {@link User#CASE_INSENSITIVE}.
+     * @return filter matching every criterion.
+     */
+    public Bson filter() {
+        List<Bson> filters = new ArrayList<>();
+        criteria().forEach((path, value) -> filters.add(Filters.eq(path, value)));
+        return Filters.and(filters);
+    }
+
+    /**
+     * Check whether a user matches every criterion.
+     * @param user user checked.
+     * @return true if the user matches.
+     */
+    public boolean matches(User user) {
+        for (Map.Entry<String, String> criterion : criteria().entrySet()) {
+            String value = FIELDS.get(criterion.getKey()).apply(user);
+            if (value == null || !normalize(value).equals(normalize(criterion.getValue()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Normalize a value for comparing it ignoring case.
+     * @param value value of a searchable field.
+     * @return normalized value.
+     */
+    public static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static void put(Map<String, String> criteria, String path, String value) {
+        if (value != null) {
+            criteria.put(path, value);
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
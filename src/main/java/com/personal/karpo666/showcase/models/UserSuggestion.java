@@ -0,0 +1,22 @@
+package com.personal.karpo666.showcase.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "A user matching a typed prefix.")
+public class UserSuggestion {
+
+    @Schema(description = "User id.")
+    private String id;
+
+    @Schema(description = "User's name.")
+    private String name;
+
+    @Schema(description = "User's username.")
+    private String username;
+}
@@ -0,0 +1,43 @@
+package com.personal.karpo666.showcase.resources;
+
+import com.personal.karpo666.showcase.models.IndexUsage;
+import com.personal.karpo666.showcase.services.UserIndexes;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponseSchema;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+@RequestScoped
+@Tag(name = "Admin")
+@Path("/api/v1/admin")
+@Produces(MediaType.APPLICATION_JSON)
+@Slf4j
+public class AdminResource {
+
+    @Inject
+    UserIndexes userIndexes;
+
+    @GET
+    @Path("/indexes")
+    @RolesAllowed("admin")
+    @Operation(
+        summary = "Fetch index usage.",
+        description = "Get usage statistics of every index of the users collection in mongodb."
+    )
+    @APIResponseSchema(value = IndexUsage[].class, responseCode = "200", responseDescription = "Successfully fetched index usage as an array.")
+    @APIResponse(responseCode = "500", description = "Exception occurred when fetching index usage.")
+    public Response getIndexUsage() {
+        log.debug("Incoming request for index usage.");
+
+        return Response.ok(userIndexes.getIndexUsage()).build();
+    }
+}
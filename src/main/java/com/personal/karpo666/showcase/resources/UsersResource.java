@@ -2,20 +2,47 @@ package com.personal.karpo666.showcase.resources;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.personal.karpo666.showcase.clients.JsonPlaceholderClient;
+import com.personal.karpo666.showcase.models.BatchResult;
 import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserFields;
+import com.personal.karpo666.showcase.models.UserIdComparator;
+import com.personal.karpo666.showcase.models.UserSearch;
+import com.personal.karpo666.showcase.models.UserSuggestion;
+import com.personal.karpo666.showcase.services.ReactiveUsersService;
+import com.personal.karpo666.showcase.services.UserAutocomplete;
+import com.personal.karpo666.showcase.services.UsersMetrics;
+import com.personal.karpo666.showcase.services.UsersResponseCache;
 import com.personal.karpo666.showcase.services.UsersService;
+import io.micrometer.core.annotation.Timed;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.unchecked.Unchecked;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponseSchema;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.reactive.RestMediaType;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
+
+import java.util.List;
+import java.util.Objects;
 
 @RequestScoped
 @Tag(name = "Users")
@@ -25,30 +52,294 @@ import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 @Slf4j
 public class UsersResource {
 
+    private static final String FIELDS_DESCRIPTION = "Comma-separated fields returned, e.g. id,name,address.city. "
+        + "All fields are returned if empty.";
+
     @Inject
     UsersService usersService;
 
+    @Inject
+    ReactiveUsersService reactiveUsersService;
+
+    @Inject
+    UsersResponseCache responseCache;
+
+    @Inject
+    UserAutocomplete autocomplete;
+
+    @Inject
+    UsersMetrics metrics;
+
+    @ConfigProperty(name = "users.page.default-size", defaultValue = "100")
+    int defaultPageSize;
+
+    @ConfigProperty(name = "users.page.max-size", defaultValue = "1000")
+    int maxPageSize;
+
+    @ConfigProperty(name = "users.batch.max-size", defaultValue = "1000")
+    int maxBatchSize;
+
+    @ConfigProperty(name = "users.autocomplete.default-size", defaultValue = "10")
+    int defaultSuggestions;
+
+    @ConfigProperty(name = "users.autocomplete.max-size", defaultValue = "50")
+    int maxSuggestions;
+
     @GET
     @Path("/users")
+    @Timed(value = "users.endpoint", extraTags = {"endpoint", "get-users"}, percentiles = {0.5, 0.95, 0.99}, histogram = true)
+    @RunOnVirtualThread
     @RolesAllowed({"user", "admin"})
     @Operation(
         summary = "Fetch all users.",
-        description = "Get all users across JsonPlaceholder and mongodb."
+        description = "Get all users across JsonPlaceholder and mongodb. "
+            + "When limit or after is given, users are returned one page at a time ordered by id "
+            + "and the next page is linked in the Link-header. "
+            + "When fields is given, only those fields of the users are returned."
     )
     @APIResponseSchema(value = User[].class, responseCode = "200", responseDescription = "Successfully fetched all users as an array.")
+    @APIResponse(responseCode = "304", description = "Users have not changed since the ETag given in If-None-Match.")
+    @APIResponse(responseCode = "400", description = "Bad request. Limit might be less than one, after might not be a user id or a field might be unknown.")
     @APIResponse(responseCode = "404", description = "Users not found.")
     @APIResponse(responseCode = "500", description = "Exception occurred when fetching users.")
-    public Response getAllUsers() {
+    public Response getAllUsers(
+        @Schema(description = "Maximum number of users returned on a page.") @QueryParam("limit") Integer limit,
+        @Schema(description = "Return users with an id greater than this. Taken from the next-link of the previous page.") @QueryParam("after") String after,
+        @Schema(description = FIELDS_DESCRIPTION) @QueryParam("fields") String fields,
+        @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+        @Context UriInfo uriInfo,
+        @Context Request request
+    ) {
         log.debug("Incoming request for all users.");
 
+        // Validate limit.
+        if (limit != null && limit < 1) {
+            return Response.status(400, "Limit must be at least one.").build();
+        }
+
+        // Validate after. Pages are ordered by the numeric value of the ids.
+        if (after != null && !UserIdComparator.isUserId(after)) {
+            return Response.status(400, "After must be a user id consisting of digits.").build();
+        }
+
+        // Validate fields.
+        UserFields userFields;
+        try {
+            userFields = UserFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return Response.status(400, e.getMessage()).build();
+        }
+
         // Attempt to get all users.
         // Respond according to exceptions if one occurs.
         try {
-            return Response.ok(usersService.getAllUsers()).build();
+            boolean paged = limit != null || after != null;
+            int pageSize = limit == null ? defaultPageSize : Math.min(limit, maxPageSize);
+
+            // Answer with 304-Not Modified before any users are read if the client already has them.
+            String etag = usersService.getUsersETag();
+            EntityTag tag = etag == null ? null : new EntityTag(
+                withFields(paged ? etag + "-" + pageSize + "-" + Objects.toString(after, "") : etag, userFields)
+            );
+            if (tag != null) {
+                var notModified = request.evaluatePreconditions(tag);
+                if (notModified != null) {
+                    return notModified.build();
+                }
+            }
+
+            // The full list is served as bytes serialized once per ETag.
+            if (!paged) {
+                boolean gzip = acceptsGzip(acceptEncoding);
+                return ok(responseCache.getUsers(etag, userFields, gzip, () -> usersService.getAllUsers(userFields)), gzip).tag(tag).build();
+            }
+
+            var page = usersService.getUsersPage(after, pageSize, userFields);
+
+            var response = userFields == null
+                ? Response.ok(page.users()).tag(tag)
+                : Response.ok(responseCache.write(page.users(), userFields), MediaType.APPLICATION_JSON_TYPE).tag(tag)
+            ;
+            if (page.next() != null) {
+                response.link(
+                    uriInfo.getRequestUriBuilder()
+                        .replaceQueryParam("after", page.next())
+                        .replaceQueryParam("limit", pageSize)
+                        .build(),
+                    "next"
+                );
+            }
+            return response.build();
+
+        } catch (JsonPlaceholderClient.JsonPlaceHolderRestException e) {
+            return mapJsonPlaceHolderRestException(e);
+
+        } catch (JsonProcessingException e) {
+            return Response.serverError().build();
+        }
+    }
+
+    @GET
+    @Path("/users/stream")
+    @Produces(RestMediaType.APPLICATION_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+        summary = "Stream all users.",
+        description = "Stream all users across JsonPlaceholder and mongodb as newline delimited json. "
+            + "Users are written as they are read from mongodb."
+    )
+    @APIResponse(responseCode = "200", description = "Users as newline delimited json.")
+    @APIResponse(responseCode = "500", description = "Exception occurred when fetching users.")
+    public Multi<User> streamAllUsers() {
+        log.debug("Incoming request to stream all users.");
+
+        return usersService.streamAllUsers();
+    }
+
+    @GET
+    @Path("/users/reactive")
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+        summary = "Fetch all users without blocking.",
+        description = "Get all users across JsonPlaceholder and mongodb on the event loop, without holding a thread "
+            + "while waiting for them. Neither cached nor paged. "
+            + "When fields is given, only those fields of the users are returned."
+    )
+    @APIResponseSchema(value = User[].class, responseCode = "200", responseDescription = "Successfully fetched all users as an array.")
+    @APIResponse(responseCode = "400", description = "Bad request. A field might be unknown.")
+    @APIResponse(responseCode = "500", description = "Exception occurred when fetching users.")
+    public Uni<Response> getAllUsersReactive(@Schema(description = FIELDS_DESCRIPTION) @QueryParam("fields") String fields) {
+        log.debug("Incoming request for all users without blocking.");
+
+        // Validate fields.
+        UserFields userFields;
+        try {
+            userFields = UserFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().item(Response.status(400, e.getMessage()).build());
+        }
+
+        // Failures are answered by the exception mappers of this resource.
+        return reactiveUsersService.getAllUsers(userFields).map(Unchecked.function(users -> json(users, userFields)));
+    }
+
+    @GET
+    @Path("/user/reactive")
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+        summary = "Fetch user with specific id without blocking.",
+        description = "Search user with given id across JsonPlaceholder and mongodb on the event loop, without holding "
+            + "a thread while waiting for it. Not cached. "
+            + "When fields is given, only those fields of the user are returned."
+    )
+    @APIResponseSchema(value = User.class, responseCode = "200", responseDescription = "Successfully fetched user.")
+    @APIResponse(responseCode = "404", description = "User was not found.")
+    @APIResponse(responseCode = "400", description = "Bad request. Id might be empty or null or a field might be unknown.")
+    @APIResponse(responseCode = "500", description = "Exception occurred when fetching user.")
+    public Uni<Response> getUserReactive(
+        @Schema(description = "User id. Cannot be null.", required = true) @QueryParam("id") String userId,
+        @Schema(description = FIELDS_DESCRIPTION) @QueryParam("fields") String fields
+    ) {
+        log.debug("Incoming request for user with id: {} without blocking.", userId);
+
+        // Validate userId.
+        if (userId == null || userId.isEmpty()) {
+            return Uni.createFrom().item(Response.status(400, "Id cannot be empty.").build());
+        }
+
+        // Validate fields.
+        UserFields userFields;
+        try {
+            userFields = UserFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().item(Response.status(400, e.getMessage()).build());
+        }
+
+        // Failures are answered by the exception mappers of this resource.
+        return reactiveUsersService.getUser(userId, userFields).map(Unchecked.function(user -> json(user, userFields)));
+    }
+
+    @GET
+    @Path("/users/search")
+    @Timed(value = "users.endpoint", extraTags = {"endpoint", "search-users"}, percentiles = {0.5, 0.95, 0.99}, histogram = true)
+    @RunOnVirtualThread
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+        summary = "Search users.",
+        description = "Search users across JsonPlaceholder and mongodb by username, email, city and company name. "
+            + "Values are matched exactly, ignoring case, and every given value must match."
+    )
+    @APIResponseSchema(value = User[].class, responseCode = "200", responseDescription = "Matching users as an array.")
+    @APIResponse(responseCode = "400", description = "Bad request. No search criteria might be given or limit might be less than one.")
+    @APIResponse(responseCode = "500", description = "Exception occurred when searching users.")
+    public Response searchUsers(
+        @Schema(description = "Username of the user.") @QueryParam("username") String username,
+        @Schema(description = "Email of the user.") @QueryParam("email") String email,
+        @Schema(description = "City in the address of the user.") @QueryParam("city") String city,
+        @Schema(description = "Name of the company of the user.") @QueryParam("company") String company,
+        @Schema(description = "Maximum number of users returned.") @QueryParam("limit") Integer limit
+    ) {
+        log.debug("Incoming request to search users.");
+
+        // Validate search.
+        UserSearch search = UserSearch.of(username, email, city, company);
+        if (search == null) {
+            return Response.status(400, "At least one of username, email, city or company must be given.").build();
+        }
+        if (limit != null && limit < 1) {
+            return Response.status(400, "Limit must be at least one.").build();
+        }
+
+        // Attempt to search users.
+        // Respond according to exceptions if one occurs.
+        try {
+            int maxResults = limit == null ? defaultPageSize : Math.min(limit, maxPageSize);
+            return Response.ok(usersService.searchUsers(search, maxResults)).build();
+
+        } catch (JsonPlaceholderClient.JsonPlaceHolderRestException e) {
+            return mapJsonPlaceHolderRestException(e);
+
+        } catch (JsonProcessingException e) {
+            return Response.serverError().build();
+        }
+    }
+
+    @GET
+    @Path("/users/autocomplete")
+    @Timed(value = "users.endpoint", extraTags = {"endpoint", "autocomplete-users"}, percentiles = {0.5, 0.95, 0.99}, histogram = true)
+    @RunOnVirtualThread
+    @RolesAllowed({"user", "admin"})
+    @Operation(
+        summary = "Autocomplete users.",
+        description = "Suggest users whose name, a word of their name or username starts with the given prefix, ignoring case. "
+            + "Served from an in-memory index of users across JsonPlaceholder and mongodb."
+    )
+    @APIResponseSchema(value = UserSuggestion[].class, responseCode = "200", responseDescription = "Matching users as an array.")
+    @APIResponse(responseCode = "400", description = "Bad request. Prefix might be empty or limit might be less than one.")
+    @APIResponse(responseCode = "500", description = "Exception occurred when building the index.")
+    public Response autocompleteUsers(
+        @Schema(description = "Typed prefix. Cannot be empty.", required = true) @QueryParam("prefix") String prefix,
+        @Schema(description = "Maximum number of users returned.") @QueryParam("limit") Integer limit
+    ) {
+        log.debug("Incoming request to autocomplete users.");
+
+        // Validate prefix and limit.
+        if (prefix == null || prefix.isBlank()) {
+            return Response.status(400, "Prefix cannot be empty.").build();
+        }
+        if (limit != null && limit < 1) {
+            return Response.status(400, "Limit must be at least one.").build();
+        }
+
+        // Attempt to suggest users.
+        // Respond according to exceptions if one occurs.
+        try {
+            int maxResults = limit == null ? defaultSuggestions : Math.min(limit, maxSuggestions);
+            return Response.ok(autocomplete.suggest(prefix, maxResults)).build();
 
         } catch (JsonPlaceholderClient.JsonPlaceHolderRestException e) {
-            log.error(e.getMessage());
-            return Response.status(e.getStatusCode()).build();
+            return mapJsonPlaceHolderRestException(e);
 
         } catch (JsonProcessingException e) {
             return Response.serverError().build();
@@ -57,16 +348,25 @@ public class UsersResource {
 
     @GET
     @Path("/user")
+    @Timed(value = "users.endpoint", extraTags = {"endpoint", "get-user"}, percentiles = {0.5, 0.95, 0.99}, histogram = true)
+    @RunOnVirtualThread
     @RolesAllowed({"user", "admin"})
     @Operation(
         summary = "Fetch user with specific id.",
-        description = "Search user with given id across JsonPlaceholder and mongodb."
+        description = "Search user with given id across JsonPlaceholder and mongodb. "
+            + "When fields is given, only those fields of the user are returned."
     )
     @APIResponseSchema(value = User.class, responseCode = "200", responseDescription = "Successfully fetched user.")
+    @APIResponse(responseCode = "304", description = "User has not changed since the ETag given in If-None-Match.")
     @APIResponse(responseCode = "404", description = "User was not found.")
-    @APIResponse(responseCode = "400", description = "Bad request. Id might be empty or null.")
+    @APIResponse(responseCode = "400", description = "Bad request. Id might be empty or null or a field might be unknown.")
     @APIResponse(responseCode = "500", description = "Exception occurred when fetching user.")
-    public Response getUser(@Schema(description = "User id. Cannot be null.", required = true) @QueryParam("id") String userId) {
+    public Response getUser(
+        @Schema(description = "User id. Cannot be null.", required = true) @QueryParam("id") String userId,
+        @Schema(description = FIELDS_DESCRIPTION) @QueryParam("fields") String fields,
+        @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+        @Context Request request
+    ) {
         log.debug("Incoming request for user with id: {}", userId);
 
         // Validate userId.
@@ -74,14 +374,33 @@ public class UsersResource {
             return Response.status(400, "Id cannot be empty.").build();
         }
 
+        // Validate fields.
+        UserFields userFields;
+        try {
+            userFields = UserFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return Response.status(400, e.getMessage()).build();
+        }
+
         // Attempt to get user with given id.
         // Respond according to exceptions if one occurs.
         try {
-            return Response.ok().entity(usersService.getUser(userId)).build();
+            // Answer with 304-Not Modified without reading the user if the client already has it.
+            String etag = usersService.getUserETag(userId);
+            EntityTag tag = etag == null ? null : new EntityTag(withFields(etag, userFields));
+            if (tag != null) {
+                var notModified = request.evaluatePreconditions(tag);
+                if (notModified != null) {
+                    return notModified.build();
+                }
+            }
+
+            // Served as bytes serialized once per ETag.
+            boolean gzip = acceptsGzip(acceptEncoding);
+            return ok(responseCache.getUser(userId, etag, userFields, gzip, () -> usersService.getUser(userId, userFields)), gzip).tag(tag).build();
 
         } catch (JsonPlaceholderClient.JsonPlaceHolderRestException e) {
-            log.error(e.getMessage());
-            return Response.status(e.getStatusCode()).build();
+            return mapJsonPlaceHolderRestException(e);
 
         } catch (JsonProcessingException e) {
             return Response.serverError().build();
@@ -90,6 +409,8 @@ public class UsersResource {
 
     @POST
     @Path("/user")
+    @Timed(value = "users.endpoint", extraTags = {"endpoint", "create-user"}, percentiles = {0.5, 0.95, 0.99}, histogram = true)
+    @RunOnVirtualThread
     @RolesAllowed("admin")
     @Operation(
         summary = "Create new user.",
@@ -111,10 +432,12 @@ public class UsersResource {
 
     @PATCH
     @Path("/user")
+    @Timed(value = "users.endpoint", extraTags = {"endpoint", "update-user"}, percentiles = {0.5, 0.95, 0.99}, histogram = true)
+    @RunOnVirtualThread
     @RolesAllowed("admin")
     @Operation(
         summary = "Update existing user.",
-        description = "Update existing user."
+        description = "Update the given fields of an existing user. Fields left out or null are not changed."
     )
     @APIResponse(responseCode = "200", description = "User updated successfully.")
     @APIResponse(responseCode = "404", description = "User was not found.")
@@ -134,11 +457,171 @@ public class UsersResource {
             return Response.status(200).build();
 
         } catch (JsonPlaceholderClient.JsonPlaceHolderRestException e) {
-            log.error(e.getMessage());
-            return Response.status(e.getStatusCode()).build();
+            return mapJsonPlaceHolderRestException(e);
 
         } catch (JsonProcessingException e) {
             return Response.serverError().build();
         }
     }
+
+    @POST
+    @Path("/users")
+    @Timed(value = "users.endpoint", extraTags = {"endpoint", "create-users"}, percentiles = {0.5, 0.95, 0.99}, histogram = true)
+    @RunOnVirtualThread
+    @RolesAllowed("admin")
+    @Operation(
+        summary = "Create new users.",
+        description = "Create several new users to mongodb at once. Each user is saved or rejected on its own "
+            + "and the result of each user is returned in request order."
+    )
+    @APIResponseSchema(value = BatchResult[].class, responseCode = "200", responseDescription = "Result of each user as an array.")
+    @APIResponse(responseCode = "400", description = "Bad request. Users might be empty or null.")
+    @APIResponse(responseCode = "413", description = "Too many users in one request.")
+    public Response createNewUsers(@Schema(description = "New users. Ids must be left empty.", required = true) List<User> users) {
+        log.debug("Incoming request to create {} new users.", users == null ? 0 : users.size());
+
+        // Validate batch.
+        Response invalid = validateBatch(users);
+        if (invalid != null) {
+            return invalid;
+        }
+
+        // Create new users to mongodb.
+        return Response.ok(usersService.createNewUsers(users)).build();
+    }
+
+    @PATCH
+    @Path("/users")
+    @Timed(value = "users.endpoint", extraTags = {"endpoint", "update-users"}, percentiles = {0.5, 0.95, 0.99}, histogram = true)
+    @RunOnVirtualThread
+    @RolesAllowed("admin")
+    @Operation(
+        summary = "Update existing users.",
+        description = "Update several existing users at once. Each user is updated or rejected on its own "
+            + "and the result of each user is returned in request order."
+    )
+    @APIResponseSchema(value = BatchResult[].class, responseCode = "200", responseDescription = "Result of each user as an array.")
+    @APIResponse(responseCode = "400", description = "Bad request. Users might be empty or null.")
+    @APIResponse(responseCode = "413", description = "Too many users in one request.")
+    @APIResponse(responseCode = "500", description = "Exception occurred when checking users.")
+    public Response updateExistingUsers(@Schema(description = "Existing users info with changes made to them.", required = true) List<User> users) {
+        log.debug("Incoming request to update {} users.", users == null ? 0 : users.size());
+
+        // Validate batch.
+        Response invalid = validateBatch(users);
+        if (invalid != null) {
+            return invalid;
+        }
+
+        // Attempt to update existing users.
+        try {
+            return Response.ok(usersService.updateExistingUsers(users)).build();
+
+        } catch (JsonPlaceholderClient.JsonPlaceHolderRestException e) {
+            return mapJsonPlaceHolderRestException(e);
+
+        } catch (JsonProcessingException e) {
+            return Response.serverError().build();
+        }
+    }
+
+    /**
+     * Build a 200-OK response with already serialized json.
+     * @param representation serialized users.
+     * @param gzip whether the client accepts a gzip-compressed body.
+     * @return {@link Response.ResponseBuilder} with the body and its encoding.
+     */
+    private static Response.ResponseBuilder ok(UsersResponseCache.Representation representation, boolean gzip) {
+        var response = Response.ok(representation.body(gzip), MediaType.APPLICATION_JSON_TYPE)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+        ;
+        if (representation.compressed(gzip)) {
+            response.encoding("gzip");
+        }
+        return response;
+    }
+
+    /**
+     * Make the ETag of a response depend on the fields in it.
+     * @param etag ETag of the users.
+     * @param fields requested fields. May be null.
+     * @return ETag of the users with only the requested fields.
+     */
+    private static String withFields(String etag, UserFields fields) {
+        return fields == null ? etag : etag + "-" + fields;
+    }
+
+    /**
+     * Check whether the client accepts gzip-compressed responses.
+     * @param acceptEncoding value of the Accept-Encoding -header.
+     * @return true if gzip is accepted.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                // A quality of zero means the coding is not accepted.
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Validate the size of a batch. Users in it are validated one by one by the service.
+     * @param users batch of users.
+     * @return error {@link Response} or null if the batch is valid.
+     */
+    private Response validateBatch(List<User> users) {
+        if (users == null || users.isEmpty()) {
+            return Response.status(400, "Users must not be empty.").build();
+        }
+        if (users.size() > maxBatchSize) {
+            return Response.status(413, "At most " + maxBatchSize + " users can be sent at once.").build();
+        }
+        return null;
+    }
+
+    /**
+     * Respond with users, leaving out fields that were not requested.
+     * @param value user or users.
+     * @param fields requested fields. All fields are returned if null.
+     * @return 200-OK {@link Response} with the users as json.
+     * @throws JsonProcessingException if writing the users fails.
+     */
+    private Response json(Object value, UserFields fields) throws JsonProcessingException {
+        return fields == null
+            ? Response.ok(value).build()
+            : Response.ok(responseCache.write(value, fields), MediaType.APPLICATION_JSON_TYPE).build()
+        ;
+    }
+
+    /**
+     * Respond with the status code of a failed JsonPlaceholder operation. Used by the endpoints and for failures
+     * not handled by them, e.g. when a stream fails before any user has been written. Failures are counted by status.
+     * @param e exception thrown by a JsonPlaceholder operation.
+     * @return {@link Response} with the status code of the exception.
+     */
+    @ServerExceptionMapper
+    public Response mapJsonPlaceHolderRestException(JsonPlaceholderClient.JsonPlaceHolderRestException e) {
+        log.error(e.getMessage());
+        metrics.upstreamError(e.getStatusCode());
+        return Response.status(e.getStatusCode()).build();
+    }
+
+    /**
+     * Respond with 503 or 504 when fault tolerance rejects or times out a JsonPlaceholder call that is not handled
+     * by the endpoint, e.g. when a stream fails before any user has been written.
+     * @param e exception raised by fault tolerance.
+     * @return {@link Response} with the matching status code.
+     */
+    @ServerExceptionMapper
+    public Response mapFaultToleranceException(FaultToleranceException e) {
+        return mapJsonPlaceHolderRestException(JsonPlaceholderClient.toRestException(e));
+    }
 }
@@ -0,0 +1,88 @@
+package com.personal.karpo666.showcase.services;
+
+import com.mongodb.client.model.Filters;
+import com.personal.karpo666.showcase.clients.JsonPlaceholderUsersCache;
+import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserFields;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.reactive.ReactiveMongoClient;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Reads users without blocking the calling thread, so they can be served from the event loop.
+ * <p>
+ * Mongodb is read with the reactive client and JsonPlaceholder through {@link JsonPlaceholderUsersCache}, which is
+ * non-blocking already. Both are queried at the same time. The collection and its mapping are the ones of the
+ * {@link User} entity, so users read here are the same as the ones read by {@link UsersService}, which still does
+ * every write.
+ */
+@ApplicationScoped
+@Slf4j
+public class ReactiveUsersService {
+
+    @Inject
+    ReactiveMongoClient mongoClient;
+
+    @Inject
+    JsonPlaceholderUsersCache jsonPlaceholderUsers;
+
+    private ReactiveMongoCollection<User> users;
+
+    @PostConstruct
+    void init() {
+
+        // Names only, nothing is read from mongodb here.
+        users = mongoClient
+            .getDatabase(User.mongoDatabase().getName())
+            .getCollection(User.mongoCollection().getNamespace().getCollectionName(), User.class)
+        ;
+    }
+
+    /**
+     * Get all users across mongodb and JsonPlaceholder.
+     * @param fields fields read from mongodb. All fields are read if null.
+     * @return mongodb users followed by JsonPlaceholder users not found in mongodb, wrapped in {@link Uni}.
+     * Fails with {@link com.personal.karpo666.showcase.clients.JsonPlaceholderClient.JsonPlaceHolderRestException}
+     * if JsonPlaceholder users cannot be fetched.
+     */
+    public Uni<List<User>> getAllUsers(UserFields fields) {
+        log.info("Getting all users without blocking with fields: {}", fields);
+
+        Uni<List<User>> mongoUsers = users.find(options(fields)).collect().asList();
+
+        return Uni.combine().all().unis(mongoUsers, jsonPlaceholderUsers.getUsers()).asTuple()
+            .map(both -> UsersService.merge(both.getItem1(), both.getItem2()))
+        ;
+    }
+
+    /**
+     * Get user with given id from mongodb, or from JsonPlaceholder if it is not saved in mongodb.
+     * @param userId id with which we do the query.
+     * @param fields fields read from mongodb. All fields are read if null.
+     * @return {@link User} wrapped in {@link Uni}. Fails with
+     * {@link com.personal.karpo666.showcase.clients.JsonPlaceholderClient.JsonPlaceHolderRestException} with status
+     * code 404 if user is not found.
+     */
+    public Uni<User> getUser(String userId, UserFields fields) {
+        log.info("Getting user without blocking with id: {} and fields: {}", userId, fields);
+
+        return users.find(Filters.eq("userId", userId), options(fields)).collect().first()
+            .onItem().ifNull().switchTo(() -> jsonPlaceholderUsers.getUser(userId))
+        ;
+    }
+
+    private static FindOptions options(UserFields fields) {
+        FindOptions options = new FindOptions();
+        if (fields != null) {
+            options.projection(fields.projection());
+        }
+        return options;
+    }
+}
@@ -0,0 +1,390 @@
+package com.personal.karpo666.showcase.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.mongodb.client.MongoCursor;
+import com.personal.karpo666.showcase.clients.JsonPlaceholderClient;
+import com.personal.karpo666.showcase.clients.JsonPlaceholderUsersCache;
+import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserSearch;
+import com.personal.karpo666.showcase.models.UserSuggestion;
+import io.micrometer.core.instrument.Gauge;
+import com.mongodb.client.model.Projections;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory prefix index of the names and usernames of all users, for type-ahead.
+ * <p>
+ * Every user is indexed under its name, each word of its name and its username in a sorted skip list, so the users
+ * matching a prefix are a range of it and a lookup only reads the suggestions it returns. Like everywhere else,
+ * users saved in mongodb override JsonPlaceholder users with the same id.
+ * <p>
+ * The index is built in the background at startup from a mongodb cursor and the cached JsonPlaceholder users, so
+ * requests do not wait for it. Only if that fails is it built by the first request. Writes through
+ * {@link UsersService} update it right away. Writes made on other instances are picked up when the index is rebuilt
+ * in the background once it is older than the rebuild interval. Suggestions are served from the old index meanwhile.
+ */
+@ApplicationScoped
+@Slf4j
+public class UserAutocomplete {
+
+    // Separates the term from the user id in keys, and sorts before any character a term can contain.
+    private static final char SEPARATOR = '\u0000';
+
+    @ConfigProperty(name = "users.autocomplete.rebuild-interval", defaultValue = "5m")
+    Duration rebuildInterval;
+
+    @ConfigProperty(name = "users.autocomplete.batch-size", defaultValue = "1000")
+    int batchSize;
+
+    @ConfigProperty(name = "users.autocomplete.warm-up", defaultValue = "true")
+    boolean warmUp;
+
+    @Inject
+    JsonPlaceholderUsersCache jsonPlaceholderUsers;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final AtomicReference<Index> index = new AtomicReference<>();
+
+    // Index being built. Receives the same writes as the current one, so none are lost when it replaces it.
+    private volatile Index building;
+
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("users.autocomplete.users", index, reference -> reference.get() == null ? 0 : reference.get().users.size())
+            .description("Users in the autocomplete index.")
+            .register(registry);
+        Gauge.builder("users.autocomplete.terms", index, reference -> reference.get() == null ? 0 : reference.get().terms.size())
+            .description("Terms in the autocomplete index.")
+            .register(registry);
+        Gauge.builder("users.autocomplete.memory.per-user", index, reference -> reference.get() == null ? 0 : reference.get().bytesPerUser())
+            .description("Estimated memory used by the autocomplete index per indexed user.")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (warmUp) {
+            rebuildInBackground();
+        }
+    }
+
+    /**
+     * Get users whose name, a word of their name or username starts with given prefix. Ignores case.
+     * @param prefix typed prefix.
+     * @param limit maximum number of users returned.
+     * @return suggestions ordered by the matching term. Each user is suggested once.
+     * @throws JsonPlaceholderClient.JsonPlaceHolderRestException if the index could not be built at startup and
+     * fetching JsonPlaceholder users fails.
+     */
+    public List<UserSuggestion> suggest(String prefix, int limit) throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        Index current = index.get();
+
+        if (current == null) {
+            current = build();
+
+        } else if (System.nanoTime() - current.builtAt > rebuildInterval.toNanos()) {
+            rebuildInBackground();
+        }
+
+        return current.suggest(UserSearch.normalize(prefix.trim()), limit);
+    }
+
+    /**
+     * Rebuild the index on a worker thread unless a rebuild is already running.
+     */
+    private void rebuildInBackground() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        Infrastructure.getDefaultWorkerPool().execute(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.warn("Rebuilding the autocomplete index failed: {}", e.getMessage());
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+    }
+
+    /**
+     * Index a user that was just created. Does nothing until the index has been built.
+     * @param user saved user with all of its fields.
+     */
+    public void add(User user) {
+        for (Index target : targets()) {
+            target.add(user);
+        }
+    }
+
+    /**
+     * Index a user that was just updated. Only the name and username given are changed, so a partial update keeps
+     * the rest of what is indexed for the user. A user that is not indexed yet, e.g. one created on another instance,
+     * is read from mongodb first, so it is never indexed without the fields the update left out. Does nothing until
+     * the index has been built.
+     * @param user user id and the fields of the user that were changed.
+     */
+    public void update(User user) {
+        User saved = null;
+        for (Index target : targets()) {
+            if (target.update(user)) {
+                continue;
+            }
+            if (saved == null) {
+                saved = User.findByUserId(user.getUserId(), Projections.include("userId", "name", "username")).orElse(null);
+            }
+            if (saved != null) {
+                target.add(saved);
+            }
+        }
+    }
+
+    /**
+     * Indexes a write must be applied to.
+     * @return the current index and the one being built, if any.
+     */
+    private List<Index> targets() {
+
+        // Read in the opposite order rebuild() writes them. An index being built is published as the current one
+        // before it stops being the one built, so this can never miss it between the two.
+        Index next = building;
+        Index current = index.get();
+
+        List<Index> targets = new ArrayList<>(2);
+        if (current != null) {
+            targets.add(current);
+        }
+        if (next != null && next != current) {
+            targets.add(next);
+        }
+        return targets;
+    }
+
+    /**
+     * Build the index unless another caller already did while this one was waiting.
+     * @return current index.
+     */
+    private Index build() throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        buildLock.lock();
+        try {
+            Index current = index.get();
+            return current != null ? current : rebuild();
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    /**
+     * Build a new index and replace the current one with it.
+     * @return new index.
+     */
+    Index rebuild() throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        buildLock.lock();
+        try {
+            log.info("Building the autocomplete index.");
+            Index fresh = new Index();
+            building = fresh;
+
+            // Mongodb users first, so that the JsonPlaceholder users they override are skipped.
+            try (MongoCursor<User> cursor = User.openCursor(batchSize)) {
+                while (cursor.hasNext()) {
+                    fresh.load(cursor.next(), true);
+                }
+            }
+            for (User user : JsonPlaceholderClient.await(jsonPlaceholderUsers.getUsers())) {
+                fresh.load(user, false);
+            }
+
+            index.set(fresh);
+            log.info("Autocomplete index built with {} users.", fresh.users.size());
+            return fresh;
+
+        } finally {
+            building = null;
+            buildLock.unlock();
+        }
+    }
+
+    /**
+     * Terms a user is found with.
+     * @param suggestion the user.
+     * @return normalized name, each word of the name and username.
+     */
+    private static Set<String> terms(UserSuggestion suggestion) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (suggestion.getName() != null && !suggestion.getName().isBlank()) {
+            String name = UserSearch.normalize(suggestion.getName().trim());
+            terms.add(name);
+            for (String word : name.split("\\s+")) {
+                terms.add(word);
+            }
+        }
+        if (suggestion.getUsername() != null && !suggestion.getUsername().isBlank()) {
+            terms.add(UserSearch.normalize(suggestion.getUsername().trim()));
+        }
+        return terms;
+    }
+
+    /**
+     * Rough size of a string on a 64-bit jvm with compressed pointers, assuming latin-1 characters.
+     */
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 24 + 16 + value.length();
+    }
+
+    /**
+     * What is indexed for a user.
+     * @param suggestion returned when the user matches.
+     * @param saved whether the user is saved in mongodb.
+     * @param keys keys of the user in the skip list.
+     * @param bytes estimated memory used for the user.
+     */
+    private record Indexed(UserSuggestion suggestion, boolean saved, List<String> keys, long bytes) {}
+
+    /**
+     * A built index. Safe to read and update concurrently.
+     */
+    static class Index {
+
+        // Skip list node and its share of the index levels, plus the map entry and record of each user.
+        private static final long ENTRY_BYTES = 48;
+        private static final long USER_BYTES = 128;
+
+        private final ConcurrentNavigableMap<String, UserSuggestion> terms = new ConcurrentSkipListMap<>();
+        private final ConcurrentMap<String, Indexed> users = new ConcurrentHashMap<>();
+
+        // Users updated while the index was built. The cursor might have read an older version of them.
+        private final Set<String> updated = ConcurrentHashMap.newKeySet();
+
+        private final AtomicLong bytes = new AtomicLong();
+        private final long builtAt = System.nanoTime();
+
+        /**
+         * Index a user read while building.
+         * @param user user read from mongodb or JsonPlaceholder.
+         * @param saved whether the user was read from mongodb.
+         */
+        void load(User user, boolean saved) {
+            String userId = user.getUserId();
+            if (userId == null || updated.contains(userId)) {
+                return;
+            }
+
+            users.compute(userId, (id, old) -> {
+                if (updated.contains(id) || (old != null && old.saved() && !saved)) {
+                    return old;
+                }
+                return replace(old, new UserSuggestion(id, user.getName(), user.getUsername()), saved);
+            });
+        }
+
+        /**
+         * Index a whole user that was written to mongodb.
+         * @param user saved user with at least its name and username.
+         */
+        void add(User user) {
+            String userId = user.getUserId();
+            if (userId == null) {
+                return;
+            }
+
+            updated.add(userId);
+            users.compute(userId, (id, old) -> replace(old, new UserSuggestion(id, user.getName(), user.getUsername()), true));
+        }
+
+        /**
+         * Index the changed name and username of an indexed user that was written to mongodb.
+         * @param user user id and the fields of the user that were changed.
+         * @return false if the user is not indexed, in which case nothing is changed.
+         */
+        boolean update(User user) {
+            String userId = user.getUserId();
+            if (userId == null) {
+                return true;
+            }
+
+            // Marked first, so that a cursor read of an older version cannot replace this one while building.
+            updated.add(userId);
+            Indexed indexed = users.computeIfPresent(userId, (id, old) -> {
+                UserSuggestion suggestion = new UserSuggestion(
+                    id,
+                    user.getName() != null ? user.getName() : old.suggestion().getName(),
+                    user.getUsername() != null ? user.getUsername() : old.suggestion().getUsername()
+                );
+                return replace(old, suggestion, true);
+            });
+            return indexed != null;
+        }
+
+        // Called while holding the lock of the user in the users map, so keys of one user are never mixed.
+        private Indexed replace(Indexed old, UserSuggestion suggestion, boolean saved) {
+            if (old != null) {
+                old.keys().forEach(terms::remove);
+                bytes.addAndGet(-old.bytes());
+            }
+
+            List<String> keys = new ArrayList<>();
+            long size = USER_BYTES + stringBytes(suggestion.getId()) + stringBytes(suggestion.getName()) + stringBytes(suggestion.getUsername());
+            for (String term : terms(suggestion)) {
+                String key = term + SEPARATOR + suggestion.getId();
+                terms.put(key, suggestion);
+                keys.add(key);
+                size += ENTRY_BYTES + stringBytes(key);
+            }
+
+            bytes.addAndGet(size);
+            return new Indexed(suggestion, saved, List.copyOf(keys), size);
+        }
+
+        /**
+         * Find users with a term starting with given prefix.
+         * @param prefix normalized prefix.
+         * @param limit maximum number of users returned.
+         * @return suggestions ordered by the matching term.
+         */
+        List<UserSuggestion> suggest(String prefix, int limit) {
+            Map<String, UserSuggestion> found = new LinkedHashMap<>();
+            for (UserSuggestion suggestion : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                found.putIfAbsent(suggestion.getId(), suggestion);
+                if (found.size() >= limit) {
+                    break;
+                }
+            }
+            return List.copyOf(found.values());
+        }
+
+        long bytesPerUser() {
+            int count = users.size();
+            return count == 0 ? 0 : bytes.get() / count;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.personal.karpo666.showcase.services;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserIdComparator;
+import io.quarkus.panache.common.Sort;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Allocates ids for new users.
+ * <p>
+ * The last allocated id is kept in a counter document in mongodb and incremented atomically. Each instance reserves
+ * a block of ids at a time and hands them out from memory, so most new users need no extra round-trip and
+ * instances never hand out the same id. Ids skipped when an instance shuts down with an unused block are not reused.
+ * <p>
+ * Allocation is guarded with a {@link ReentrantLock} instead of {@code synchronized}, because reserving a block waits
+ * for mongodb while holding it, which would pin a virtual thread to its carrier.
+ */
+@ApplicationScoped
+@Slf4j
+public class UserIdAllocator {
+
+    // JsonPlaceholder has 10 users saved. This will not change ever.
+    // Ids of new users start after them.
+    static final int JP_USERS = 10;
+
+    static final String COUNTERS_COLLECTION = "counters";
+    static final String USER_ID_COUNTER = "userId";
+
+    @ConfigProperty(name = "users.id-allocator.block-size", defaultValue = "20")
+    int blockSize;
+
+    // Next id to hand out and the last id of the reserved block.
+    private long next = 1;
+    private long blockEnd = 0;
+
+    private volatile boolean seeded;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Allocate an id for a new user.
+     * @return unused user id.
+     */
+    public String nextId() {
+        lock.lock();
+        try {
+            if (next > blockEnd) {
+                reserveBlock(blockSize);
+            }
+            return String.valueOf(next++);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Allocate ids for several new users at once.
+     * <p>
+     * Ids left in the current block are used first. The rest are reserved with a single increment, so a batch of
+     * any size needs at most one round-trip.
+     * @param count how many ids are allocated.
+     * @return unused user ids in ascending order.
+     */
+    public List<String> nextIds(int count) {
+        List<String> ids = new ArrayList<>(count);
+
+        lock.lock();
+        try {
+            while (ids.size() < count && next <= blockEnd) {
+                ids.add(String.valueOf(next++));
+            }
+
+            int missing = count - ids.size();
+            if (missing > 0) {
+                // Reserve a full block on top of what is missing, so the next single allocations stay in memory.
+                reserveBlock(missing + blockSize);
+                while (ids.size() < count) {
+                    ids.add(String.valueOf(next++));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return ids;
+    }
+
+    /**
+     * Reserve the next block of ids from the counter document.
+     * @param size how many ids are reserved.
+     */
+    private void reserveBlock(int size) {
+        blockEnd = incrementCounter(size);
+        next = blockEnd - size + 1;
+        log.debug("Reserved user ids from {} to {}.", next, blockEnd);
+    }
+
+    /**
+     * Increment the counter document atomically.
+     * @param size how much the counter is incremented.
+     * @return value of the counter after the increment, i.e. the last id of the reserved block.
+     */
+    long incrementCounter(int size) {
+        seed();
+
+        Document counter = counters().findOneAndUpdate(
+            Filters.eq("_id", USER_ID_COUNTER),
+            Updates.inc("value", (long) size),
+            new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER)
+        );
+
+        return counter.get("value", Number.class).longValue();
+    }
+
+    /**
+     * Make sure the counter starts after every id already in use. Only needed once, when the counter is created.
+     */
+    private void seed() {
+        if (seeded) {
+            return;
+        }
+
+        if (counters().find(Filters.eq("_id", USER_ID_COUNTER)).first() == null) {
+            long highestId = highestNumericUserId();
+            log.info("Seeding user id counter at {}.", highestId);
+
+            // $max keeps the counter untouched if another instance already seeded and used it.
+            counters().updateOne(
+                Filters.eq("_id", USER_ID_COUNTER),
+                Updates.max("value", highestId),
+                new UpdateOptions().upsert(true)
+            );
+        }
+
+        seeded = true;
+    }
+
+    /**
+     * Find the highest numeric user id saved in mongodb.
+     * @return highest numeric user id or the number of JsonPlaceholder users if there is none.
+     */
+    private long highestNumericUserId() {
+        User highest = User.<User>find("{'userId': {'$regex': '^[0-9]+$'}}", Sort.descending("userId"))
+            .withCollation(User.USER_ID_ORDER)
+            .firstResult()
+        ;
+
+        if (highest == null || UserIdComparator.INSTANCE.compare(highest.getUserId(), String.valueOf(JP_USERS)) < 0) {
+            return JP_USERS;
+        }
+        return Long.parseLong(highest.getUserId());
+    }
+
+    private static MongoCollection<Document> counters() {
+        return User.mongoDatabase().getCollection(COUNTERS_COLLECTION);
+    }
+}
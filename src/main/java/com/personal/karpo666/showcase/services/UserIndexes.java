@@ -0,0 +1,183 @@
+package com.personal.karpo666.showcase.services;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.personal.karpo666.showcase.models.IndexUsage;
+import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserSearch;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Declares and creates the indexes of the users collection.
+ * <p>
+ * Indexes are created in the background at startup, so the application starts even if mongodb is slow or
+ * temporarily unavailable. Creation is retried until it succeeds and the readiness check stays down until then.
+ * Creating an index that already exists is a no-op, so every instance can safely do this on every start.
+ * <p>
+ * Failures that retrying cannot fix are not retried: duplicate user ids preventing the unique index, and an existing
+ * index with the same name or keys but other options. They are reported by the readiness check until the collection
+ * is fixed and the application restarted. See the README for how to remove duplicate user ids.
+ */
+@ApplicationScoped
+@Slf4j
+public class UserIndexes {
+
+    static final String USER_ID_UNIQUE = "userId_unique";
+    static final String USER_ID_NUMERIC = "userId_numeric";
+    static final String SEARCH_SUFFIX = "_search";
+
+    // DuplicateKey, IndexOptionsConflict and IndexKeySpecsConflict. Only fixed by changing the collection.
+    static final Set<Integer> PERMANENT_ERRORS = Set.of(11000, 85, 86);
+
+    // At most this many duplicate user ids are reported.
+    static final int MAX_REPORTED_DUPLICATES = 10;
+
+    /**
+     * Indexes required by the queries in {@link User}.
+     */
+    static final List<IndexModel> INDEXES = indexes();
+
+    private static List<IndexModel> indexes() {
+        List<IndexModel> indexes = new ArrayList<>();
+
+        // Lookups and updates by id. Also prevents two users from having the same id.
+        indexes.add(new IndexModel(Indexes.ascending("userId"), new IndexOptions().name(USER_ID_UNIQUE).unique(true)));
+
+        // Pages ordered by id use the numeric collation, which can only use an index with the same collation.
+        indexes.add(new IndexModel(Indexes.ascending("userId"), new IndexOptions().name(USER_ID_NUMERIC).collation(User.USER_ID_ORDER)));
+
+        // Searches ignore case, so they need indexes with the same collation. One per field, since any combination
+        // of fields can be searched and mongodb picks the most selective index of the given fields.
+        UserSearch.FIELDS.keySet().forEach(path -> indexes.add(new IndexModel(
+            Indexes.ascending(path),
+            new IndexOptions().name(path + SEARCH_SUFFIX).collation(User.CASE_INSENSITIVE)
+        )));
+
+        return List.copyOf(indexes);
+    }
+
+    private volatile boolean ready;
+    private volatile Failure failure;
+
+    void onStart(@Observes StartupEvent event) {
+        ensureIndexes();
+    }
+
+    /**
+     * Create missing indexes in the background. Not ready until they are created.
+     */
+    void ensureIndexes() {
+        ready = false;
+        failure = null;
+
+        Uni.createFrom().item(this::createIndexes)
+            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+            .onFailure().invoke(e -> log.error("Failed to create indexes of the users collection: {}", e.getMessage()))
+            .onFailure(e -> !isPermanent(e)).retry().withBackOff(Duration.ofSeconds(1), Duration.ofMinutes(1)).indefinitely()
+            .subscribe().with(
+                created -> {
+                    ready = true;
+                    log.info("Indexes of the users collection are ready: {}", created);
+                },
+                e -> {
+                    failure = new Failure(e.getMessage(), findDuplicateUserIds());
+                    log.error("Indexes of the users collection cannot be created until the collection is fixed: {}", failure);
+                }
+            )
+        ;
+    }
+
+    /**
+     * Whether all indexes of the users collection have been created.
+     * @return true if indexes are ready.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Failure that stopped indexes from being created for good.
+     * @return {@link Failure} wrapped in {@link Optional}. Empty if indexes are ready or still being retried.
+     */
+    public Optional<Failure> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+
+    /**
+     * List usage statistics of every index of the users collection.
+     * @return a list of {@link IndexUsage}.
+     */
+    public List<IndexUsage> getIndexUsage() {
+        List<IndexUsage> usage = new ArrayList<>();
+
+        User.mongoCollection()
+            .aggregate(List.of(new Document("$indexStats", new Document())), Document.class)
+            .forEach(stats -> {
+                Document accesses = stats.get("accesses", Document.class);
+                usage.add(new IndexUsage(
+                    stats.getString("name"),
+                    stats.get("key", Document.class).keySet().stream().toList(),
+                    accesses.get("ops", Number.class).longValue(),
+                    accesses.getDate("since").toInstant()
+                ));
+            })
+        ;
+
+        return usage;
+    }
+
+    static boolean isPermanent(Throwable e) {
+        return e instanceof MongoException mongoException && PERMANENT_ERRORS.contains(mongoException.getCode());
+    }
+
+    /**
+     * Find user ids shared by more than one user, e.g. created before the unique index existed.
+     * @return at most {@link #MAX_REPORTED_DUPLICATES} duplicate user ids. Empty if they cannot be read.
+     */
+    List<String> findDuplicateUserIds() {
+        try {
+            List<String> duplicates = new ArrayList<>();
+            User.mongoCollection()
+                .aggregate(List.of(
+                    Aggregates.group("$userId", Accumulators.sum("count", 1)),
+                    Aggregates.match(Filters.gt("count", 1)),
+                    Aggregates.limit(MAX_REPORTED_DUPLICATES)
+                ), Document.class)
+                .forEach(group -> duplicates.add(String.valueOf(group.get("_id"))))
+            ;
+            return duplicates;
+        } catch (MongoException e) {
+            log.warn("Failed to find duplicate user ids: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<String> createIndexes() {
+        log.info("Ensuring indexes of the users collection.");
+        return User.mongoCollection().createIndexes(INDEXES);
+    }
+
+    /**
+     * Failure that retrying cannot fix.
+     * @param message error reported by mongodb.
+     * @param duplicateUserIds some user ids shared by more than one user. Empty if there are none.
+     */
+    public record Failure(String message, List<String> duplicateUserIds) {}
+}
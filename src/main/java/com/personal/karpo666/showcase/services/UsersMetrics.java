@@ -0,0 +1,149 @@
+package com.personal.karpo666.showcase.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Metrics and trace spans of the steps users are read and written in, so that a slow request can be attributed to
+ * mongodb, waiting for JsonPlaceholder or combining the two.
+ */
+@ApplicationScoped
+public class UsersMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Tracer tracer;
+
+    // Meters are looked up on every call, so they are kept here instead of being rebuilt by the registry each time.
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+    private final Map<Integer, Counter> upstreamErrors = new ConcurrentHashMap<>();
+
+    /**
+     * Time a mongodb operation.
+     * @param operation name of the operation. Used as a metric tag.
+     * @param query the operation.
+     * @return result of the operation.
+     */
+    public <T> T mongo(String operation, Supplier<T> query) {
+        return step("mongodb " + operation, () -> timer("users.mongodb.operations", operation).record(query));
+    }
+
+    /**
+     * Time a mongodb operation without a result.
+     * @param operation name of the operation. Used as a metric tag.
+     * @param write the operation.
+     */
+    public void mongo(String operation, Runnable write) {
+        mongo(operation, () -> {
+            write.run();
+            return null;
+        });
+    }
+
+    /**
+     * Start timing the wait for JsonPlaceholder users. Stopped by closing the returned {@link UpstreamWait}.
+     * @param operation name of the operation waiting. Used as a metric tag.
+     * @return started {@link UpstreamWait}.
+     */
+    public UpstreamWait startUpstreamWait(String operation) {
+        Span span = tracer.spanBuilder("await jsonplaceholder").startSpan();
+        return new UpstreamWait(Timer.start(registry), timer("users.upstream.wait", operation), span);
+    }
+
+    /**
+     * Time combining users from mongodb and JsonPlaceholder and record how many users were combined.
+     * @param operation name of the operation combining users. Used as a metric tag.
+     * @param mongoUsers number of users from mongodb.
+     * @param upstreamUsers number of users from JsonPlaceholder.
+     * @param merge combines the users.
+     * @return combined users.
+     */
+    public <T extends Collection<?>> T merge(String operation, int mongoUsers, int upstreamUsers, Supplier<T> merge) {
+        T merged = step("merge", () -> timer("users.merge", operation).record(merge));
+
+        summary(operation, "mongodb").record(mongoUsers);
+        summary(operation, "jsonplaceholder").record(upstreamUsers);
+        summary(operation, "result").record(merged.size());
+
+        return merged;
+    }
+
+    /**
+     * Count a failed JsonPlaceholder request seen by the endpoints.
+     * @param status status code of the failure. Used as a metric tag.
+     */
+    public void upstreamError(int status) {
+        upstreamErrors.computeIfAbsent(status, key -> Counter.builder("jsonplaceholder.errors")
+            .tag("status", String.valueOf(status))
+            .register(registry)
+        ).increment();
+    }
+
+    /**
+     * Run a step in its own span, which is the parent of any spans started by the step.
+     * @param name name of the span.
+     * @param step the step.
+     * @return result of the step.
+     */
+    private <T> T step(String name, Supplier<T> step) {
+        Span span = tracer.spanBuilder(name).startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            return step.get();
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR, e.getMessage());
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private Timer timer(String name, String operation) {
+        return timers.computeIfAbsent(name + "/" + operation, key -> Timer.builder(name)
+            .tag("operation", operation)
+            .publishPercentiles(PERCENTILES)
+            .publishPercentileHistogram()
+            .register(registry)
+        );
+    }
+
+    private DistributionSummary summary(String operation, String source) {
+        return summaries.computeIfAbsent(operation + "/" + source, key -> DistributionSummary.builder("users.merge.size")
+            .tags("operation", operation, "source", source)
+            .register(registry)
+        );
+    }
+
+    /**
+     * Wait for JsonPlaceholder users that is being timed and traced.
+     * @param sample started when the wait started.
+     * @param timer where the wait is recorded.
+     * @param span span of the wait.
+     */
+    public record UpstreamWait(Timer.Sample sample, Timer timer, Span span) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            sample.stop(timer);
+            span.end();
+        }
+    }
+}
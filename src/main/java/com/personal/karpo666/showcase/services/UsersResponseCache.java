@@ -0,0 +1,250 @@
+package com.personal.karpo666.showcase.services;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.personal.karpo666.showcase.clients.JsonPlaceholderClient;
+import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserFields;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of users already serialized to json.
+ * <p>
+ * Entries are kept per resource, i.e. one for the list of all users and one per user, together with the ETag they
+ * were serialized for. An entry is only served for the same ETag, so a write on another instance is never hidden by
+ * an old entry here. Writes through {@link UsersService} also drop the affected entries right away to free memory.
+ * The cache is bounded by the total size of the cached bytes.
+ * <p>
+ * Responses with only some fields of the users are cached under their own keys and validated by ETag like the rest.
+ * They are not dropped on writes, but an entry with an old ETag is never served and is soon evicted by newer ones.
+ */
+@ApplicationScoped
+@Slf4j
+public class UsersResponseCache {
+
+    private static final String USERS_KEY = "users";
+    private static final String USER_KEY_PREFIX = "user/";
+
+    @ConfigProperty(name = "users.response-cache.max-size", defaultValue = "64M")
+    MemorySize maxSize;
+
+    @ConfigProperty(name = "users.response-cache.gzip-min-size", defaultValue = "1K")
+    MemorySize gzipMinSize;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    MeterRegistry registry;
+
+    // Writes only the requested fields of users.
+    private ObjectMapper fieldsMapper;
+
+    private Cache<String, Representation> cache;
+
+    @PostConstruct
+    void init() {
+        fieldsMapper = mapper.copy()
+            .addMixIn(User.class, Filtered.class)
+            .addMixIn(User.Address.class, Filtered.class)
+            .addMixIn(User.Company.class, Filtered.class)
+            .addMixIn(User.AdditionalInfo.class, Filtered.class)
+        ;
+
+        cache = Caffeine.newBuilder()
+            .maximumWeight(maxSize.asLongValue())
+            .weigher((String key, Representation representation) -> representation.size())
+            .recordStats()
+            .build()
+        ;
+        CaffeineCacheMetrics.monitor(registry, cache, "users-response");
+    }
+
+    /**
+     * Get the list of all users as json.
+     * @param etag ETag of the users. Nothing is cached if null.
+     * @param gzip whether a gzip-compressed body is wanted.
+     * @param loader reads the users if they are not cached for the ETag.
+     * @return {@link Representation} of the users.
+     */
+    public Representation getUsers(String etag, boolean gzip, Loader<List<User>> loader)
+        throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        return getUsers(etag, null, gzip, loader);
+    }
+
+    /**
+     * Get the list of all users as json with only the requested fields.
+     * @param etag ETag of the users. Nothing is cached if null.
+     * @param fields fields written. All fields are written if null.
+     * @param gzip whether a gzip-compressed body is wanted.
+     * @param loader reads the users if they are not cached for the ETag.
+     * @return {@link Representation} of the users.
+     */
+    public Representation getUsers(String etag, UserFields fields, boolean gzip, Loader<List<User>> loader)
+        throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        return get(key(USERS_KEY, fields), etag, fields, gzip, loader);
+    }
+
+    /**
+     * Get user with given id as json.
+     * @param userId id of the user.
+     * @param etag ETag of the user. Nothing is cached if null.
+     * @param gzip whether a gzip-compressed body is wanted.
+     * @param loader reads the user if it is not cached for the ETag.
+     * @return {@link Representation} of the user.
+     */
+    public Representation getUser(String userId, String etag, boolean gzip, Loader<User> loader)
+        throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        return getUser(userId, etag, null, gzip, loader);
+    }
+
+    /**
+     * Get user with given id as json with only the requested fields.
+     * @param userId id of the user.
+     * @param etag ETag of the user. Nothing is cached if null.
+     * @param fields fields written. All fields are written if null.
+     * @param gzip whether a gzip-compressed body is wanted.
+     * @param loader reads the user if it is not cached for the ETag.
+     * @return {@link Representation} of the user.
+     */
+    public Representation getUser(String userId, String etag, UserFields fields, boolean gzip, Loader<User> loader)
+        throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        return get(key(USER_KEY_PREFIX + userId, fields), etag, fields, gzip, loader);
+    }
+
+    /**
+     * Write users as json with only the requested fields, without caching them.
+     * @param value user or users to write.
+     * @param fields fields written. All fields are written if null.
+     * @return value as UTF-8 json.
+     */
+    public byte[] write(Object value, UserFields fields) throws JsonProcessingException {
+        if (fields == null) {
+            return mapper.writeValueAsBytes(value);
+        }
+
+        return fieldsMapper.writer(new SimpleFilterProvider().addFilter(UserFields.FILTER, fields.filter())).writeValueAsBytes(value);
+    }
+
+    /**
+     * Drop the cached list of all users.
+     */
+    public void invalidateUsers() {
+        cache.invalidate(USERS_KEY);
+    }
+
+    /**
+     * Drop the cached user with given id and the list of all users it is part of.
+     * @param userId id of the changed user.
+     */
+    public void invalidateUser(String userId) {
+        cache.invalidate(USER_KEY_PREFIX + userId);
+        cache.invalidate(USERS_KEY);
+    }
+
+    private static String key(String key, UserFields fields) {
+        return fields == null ? key : key + "?" + fields;
+    }
+
+    private Representation get(String key, String etag, UserFields fields, boolean gzip, Loader<?> loader)
+        throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+
+        // Without an ETag there is no way to tell whether a cached entry is still valid.
+        if (etag == null) {
+            return compress(new Representation(null, write(loader.load(), fields), null), gzip);
+        }
+
+        Representation representation = cache.getIfPresent(key);
+        if (representation == null || !etag.equals(representation.etag())) {
+            representation = new Representation(etag, write(loader.load(), fields), null);
+            cache.put(key, representation);
+        }
+
+        // Compressed lazily, since most clients of the api might never ask for it.
+        if (gzip && representation.gzip() == null && representation.json().length >= gzipMinSize.asLongValue()) {
+            representation = compress(representation, true);
+            cache.put(key, representation);
+        }
+
+        return representation;
+    }
+
+    private Representation compress(Representation representation, boolean gzip) {
+        if (!gzip || representation.json().length < gzipMinSize.asLongValue()) {
+            return representation;
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(representation.json().length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(representation.json());
+        } catch (IOException e) {
+            // Writing to a byte array does no actual I/O, so this is not expected to happen.
+            throw new UncheckedIOException(e);
+        }
+
+        return new Representation(representation.etag(), representation.json(), compressed.toByteArray());
+    }
+
+    /**
+     * Puts the filter of requested fields on users and their nested classes.
+     */
+    @JsonFilter(UserFields.FILTER)
+    private interface Filtered {}
+
+    /**
+     * Reads what is serialized when nothing is cached.
+     * @param <T> type of the read value.
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException;
+    }
+
+    /**
+     * A serialized user or list of users.
+     * @param etag ETag the value was serialized for. Null if it was not cached.
+     * @param json value as UTF-8 json.
+     * @param gzip json compressed with gzip. Null if not compressed.
+     */
+    public record Representation(String etag, byte[] json, byte[] gzip) {
+
+        /**
+         * Body to send.
+         * @param acceptsGzip whether the client accepts a gzip-compressed body.
+         * @return compressed body if one is available and accepted, plain json otherwise.
+         */
+        public byte[] body(boolean acceptsGzip) {
+            return acceptsGzip && gzip != null ? gzip : json;
+        }
+
+        /**
+         * Whether {@link #body(boolean)} is compressed.
+         * @param acceptsGzip whether the client accepts a gzip-compressed body.
+         * @return true if the body is compressed.
+         */
+        public boolean compressed(boolean acceptsGzip) {
+            return acceptsGzip && gzip != null;
+        }
+
+        int size() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.personal.karpo666.showcase.services;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.personal.karpo666.showcase.models.User;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.Document;
+
+/**
+ * Revision of the users saved in mongodb, shared by every instance.
+ * <p>
+ * The revision is bumped after every write, so reading it before reading users gives a validator that is never
+ * newer than the users read after it. Reading it is a single lookup by id, which is far cheaper than reading users.
+ */
+@ApplicationScoped
+public class UsersRevision {
+
+    static final String USERS_REVISION_COUNTER = "usersRevision";
+
+    /**
+     * Current revision of the users.
+     * @return revision, or zero if no user has been written yet.
+     */
+    public long current() {
+        Document counter = counters().find(Filters.eq("_id", USERS_REVISION_COUNTER)).first();
+        return counter == null ? 0 : counter.get("value", Number.class).longValue();
+    }
+
+    /**
+     * Mark users as changed. Must be called after the write has been applied.
+     */
+    public void bump() {
+        counters().updateOne(
+            Filters.eq("_id", USERS_REVISION_COUNTER),
+            Updates.inc("value", 1L),
+            new UpdateOptions().upsert(true)
+        );
+    }
+
+    private static MongoCollection<Document> counters() {
+        return User.mongoDatabase().getCollection(UserIdAllocator.COUNTERS_COLLECTION);
+    }
+}
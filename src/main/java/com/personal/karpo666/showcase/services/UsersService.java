@@ -1,77 +1,676 @@
 package com.personal.karpo666.showcase.services;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
 import com.personal.karpo666.showcase.clients.JsonPlaceholderClient;
+import com.personal.karpo666.showcase.clients.JsonPlaceholderUsersCache;
+import com.personal.karpo666.showcase.models.BatchResult;
 import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserFields;
+import com.personal.karpo666.showcase.models.UserSearch;
+import com.personal.karpo666.showcase.models.UserIdComparator;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @ApplicationScoped
 @Slf4j
 public class UsersService {
 
     @Inject
-    JsonPlaceholderClient client;
+    JsonPlaceholderUsersCache jsonPlaceholderUsers;
 
-    // JsonPlaceholder has 10 users saved. This will not change ever.
-    // Used to generate user ids for new users.
-    private static final int JP_USERS = 10;
+    @Inject
+    UserIdAllocator idAllocator;
+
+    @Inject
+    UsersRevision revision;
+
+    @Inject
+    UsersResponseCache responseCache;
+
+    @Inject
+    UsersMetrics metrics;
+
+    @Inject
+    UserAutocomplete autocomplete;
+
+    // When enabled, JsonPlaceholder is queried at the same time as mongodb when fetching a single user.
+    // Saves a round-trip for users that only exist in JsonPlaceholder at the cost of some wasted upstream calls.
+    @ConfigProperty(name = "users.speculative-upstream-lookup", defaultValue = "false")
+    boolean speculativeUpstreamLookup;
+
+    @ConfigProperty(name = "users.stream.batch-size", defaultValue = "100")
+    int streamBatchSize;
 
     public List<User> getAllUsers() throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
-        log.info("Getting all users.");
+        return getAllUsers(null);
+    }
+
+    /**
+     * Get all users across mongodb and JsonPlaceholder.
+     * @param fields fields read from mongodb. All fields are read if null. JsonPlaceholder users are returned whole
+     *               and their fields are left out when they are written.
+     * @return mongodb users followed by JsonPlaceholder users not found in mongodb.
+     */
+    @WithSpan
+    public List<User> getAllUsers(UserFields fields) throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        log.info("Getting all users with fields: {}", fields);
+
+        // Start fetching users from JsonPlaceholder so that the request runs while mongodb is queried.
+        CompletableFuture<List<User>> upstreamUsers = jsonPlaceholderUsers.getUsers().subscribeAsCompletionStage();
 
         // Fetching all users from mongodb.
-        List<User> mongoUsers = User.listAll();
-        List<String> mongoIds = mongoUsers.stream().map(User::getUserId).toList();
+        List<User> mongoUsers;
+        try {
+            mongoUsers = metrics.mongo("list-all", () -> User.listAllProjected(projection(fields)));
+        } catch (RuntimeException e) {
+            upstreamUsers.cancel(false);
+            throw e;
+        }
+
+        // Waiting for users from JsonPlaceholder and combining them with users from mongodb.
+        List<User> upstream = awaitUpstream("get-all-users", upstreamUsers);
+        return metrics.merge("get-all-users", mongoUsers.size(), upstream.size(), () -> merge(mongoUsers, upstream));
+    }
+
+    /**
+     * Wait for users from JsonPlaceholder that were requested before querying mongodb.
+     * Only the time not already spent querying mongodb is measured.
+     * @param operation name of the operation waiting. Used as a metric tag.
+     * @param upstream pending request.
+     * @return result of the request.
+     */
+    private <T> T awaitUpstream(String operation, CompletableFuture<T> upstream)
+        throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        try (var ignored = metrics.startUpstreamWait(operation)) {
+            return JsonPlaceholderClient.await(upstream);
+        }
+    }
+
+    /**
+     * Stream all users across mongodb and JsonPlaceholder.
+     * <p>
+     * Mongodb users are read from a cursor and emitted one at a time as the subscriber requests them, followed by
+     * JsonPlaceholder users not found in mongodb. Only the ids of overridden JsonPlaceholder users are kept in
+     * memory, so memory use does not grow with the collection.
+     * @return {@link Multi} of users. The mongodb cursor is read on a worker thread.
+     */
+    public Multi<User> streamAllUsers() {
+        log.info("Streaming all users.");
+
+        return jsonPlaceholderUsers.getUsers().onItem().transformToMulti(upstreamUsers -> {
+            Set<String> upstreamIds = new HashSet<>();
+            upstreamUsers.forEach(user -> upstreamIds.add(user.getUserId()));
+            Set<String> overriddenIds = ConcurrentHashMap.newKeySet();
+
+            Multi<User> mongoUsers = Multi.createFrom()
+                .resource(() -> User.openCursor(streamBatchSize), cursor -> Multi.createFrom().<User>iterable(() -> cursor))
+                .withFinalizer(MongoCursor::close)
+                .invoke(user -> {
+                    if (upstreamIds.contains(user.getUserId())) {
+                        overriddenIds.add(user.getUserId());
+                    }
+                })
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+            ;
+
+            // Evaluated only after all mongodb users have been emitted.
+            Multi<User> upstreamOnlyUsers = Multi.createFrom().deferred(() -> Multi.createFrom().iterable(
+                upstreamUsers.stream().filter(user -> !overriddenIds.contains(user.getUserId())).toList()
+            ));
+
+            return Multi.createBy().concatenating().streams(mongoUsers, upstreamOnlyUsers);
+        });
+    }
+
+    /**
+     * Combine users from mongodb and JsonPlaceholder. Mongodb users override JsonPlaceholder users with the same id.
+     * <p>
+     * JsonPlaceholder only has a handful of users, so only their ids are kept in a hash set and mongodb users are
+     * checked against them in a single pass. Cost stays linear and no per-user bookkeeping is allocated for mongodb.
+     * @param mongoUsers users saved in mongodb.
+     * @param upstreamUsers users in JsonPlaceholder.
+     * @return mongodb users followed by JsonPlaceholder users not found in mongodb.
+     */
+    public static List<User> merge(List<User> mongoUsers, List<User> upstreamUsers) {
+        Set<String> upstreamIds = new HashSet<>(upstreamUsers.size() * 2);
+        upstreamUsers.forEach(user -> upstreamIds.add(user.getUserId()));
 
-        // Fetching users from JsonPlaceholder and removing users found in mongodb from the result.
-        List<User> users = client.getUsers().stream().filter(user -> !mongoIds.contains(user.getUserId())).toList();
+        // Collect ids of JsonPlaceholder users that are overridden in mongodb.
+        Set<String> overriddenIds = new HashSet<>();
+        for (User user : mongoUsers) {
+            if (upstreamIds.contains(user.getUserId())) {
+                overriddenIds.add(user.getUserId());
+            }
+        }
+
+        List<User> users = new ArrayList<>(mongoUsers.size() + upstreamUsers.size());
+        users.addAll(mongoUsers);
+        for (User user : upstreamUsers) {
+            if (!overriddenIds.contains(user.getUserId())) {
+                users.add(user);
+            }
+        }
+
+        return users;
+    }
+
+    /**
+     * Get a page of users ordered by user id across mongodb and JsonPlaceholder.
+     * <p>
+     * Pages are addressed with the last user id of the previous page instead of an offset, so mongodb only reads
+     * the users on the requested page no matter how far into the collection the page is.
+     * @param after only users with an id greater than this are returned. Starts from the beginning if null.
+     * @param limit maximum number of users returned.
+     * @return {@link UsersPage} with the users and the cursor for the next page.
+     */
+    public UsersPage getUsersPage(String after, int limit) throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        return getUsersPage(after, limit, null);
+    }
+
+    /**
+     * Get a page of users like {@link #getUsersPage(String, int)}, reading only some fields from mongodb.
+     * @param after only users with an id greater than this are returned. Starts from the beginning if null.
+     * @param limit maximum number of users returned.
+     * @param fields fields read from mongodb. All fields are read if null.
+     * @return {@link UsersPage} with the users and the cursor for the next page.
+     */
+    @WithSpan
+    public UsersPage getUsersPage(String after, int limit, UserFields fields)
+        throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        log.info("Getting {} users after id: {} with fields: {}", limit, after, fields);
+
+        // Start fetching users from JsonPlaceholder so that the request runs while mongodb is queried.
+        CompletableFuture<List<User>> upstreamUsers = jsonPlaceholderUsers.getUsers().subscribeAsCompletionStage();
+
+        // Fetching the page from mongodb.
+        List<User> mongoUsers;
+        try {
+            mongoUsers = metrics.mongo("find-page", () -> User.findPageAfter(after, limit, projection(fields)));
+        } catch (RuntimeException e) {
+            upstreamUsers.cancel(false);
+            throw e;
+        }
+
+        // JsonPlaceholder users that could be on this page, ordered like the mongodb users.
+        List<User> upstreamCandidates = awaitUpstream("get-users-page", upstreamUsers).stream()
+            .filter(user -> UserIdComparator.isUserId(user.getUserId()))
+            .filter(user -> after == null || UserIdComparator.INSTANCE.compare(user.getUserId(), after) > 0)
+            .sorted(Comparator.comparing(User::getUserId, UserIdComparator.INSTANCE))
+            .toList()
+        ;
+
+        // Only the ids of the candidates are needed to know which of them are overridden in mongodb.
+        Set<String> overriddenIds = metrics.mongo("find-user-ids", () -> User.findUserIdsIn(upstreamCandidates.stream().map(User::getUserId).toList()));
+
+        // Merging the two ordered lists until the page is full.
+        List<User> users = metrics.merge(
+            "get-users-page",
+            mongoUsers.size(),
+            upstreamCandidates.size(),
+            () -> mergePage(mongoUsers, upstreamCandidates, overriddenIds, limit)
+        );
+
+        // A full page might be followed by more users.
+        String next = users.size() == limit ? users.get(users.size() - 1).getUserId() : null;
+        return new UsersPage(users, next);
+    }
+
+    /**
+     * Search users across mongodb and JsonPlaceholder.
+     * <p>
+     * Mongodb is searched with its search indexes and JsonPlaceholder users with the in-memory index of
+     * {@link JsonPlaceholderUsersCache}. Like in {@link #getAllUsers()}, mongodb users override JsonPlaceholder users
+     * with the same id, so a JsonPlaceholder user is left out if it is saved in mongodb, even if the saved user does
+     * not match the search anymore.
+     * @param search criteria the users must match.
+     * @param limit maximum number of users returned.
+     * @return matching mongodb users followed by matching JsonPlaceholder users not found in mongodb.
+     */
+    @WithSpan
+    public List<User> searchUsers(UserSearch search, int limit) throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        log.info("Searching at most {} users with: {}", limit, search);
+
+        // Start searching JsonPlaceholder users so that it runs while mongodb is queried.
+        CompletableFuture<List<User>> upstreamUsers = jsonPlaceholderUsers.search(search).subscribeAsCompletionStage();
+
+        // Searching mongodb.
+        List<User> mongoUsers;
+        try {
+            mongoUsers = metrics.mongo("search", () -> User.findMatching(search, limit));
+        } catch (RuntimeException e) {
+            upstreamUsers.cancel(false);
+            throw e;
+        }
+
+        // Only the ids of the matches are needed to know which of them are overridden in mongodb.
+        List<User> upstream = awaitUpstream("search-users", upstreamUsers);
+        Set<String> overriddenIds = metrics.mongo("find-user-ids", () -> User.findUserIdsIn(upstream.stream().map(User::getUserId).toList()));
+
+        return metrics.merge("search-users", mongoUsers.size(), upstream.size(), () -> {
+            List<User> users = new ArrayList<>(Math.min(limit, mongoUsers.size() + upstream.size()));
+            users.addAll(mongoUsers);
+            for (User user : upstream) {
+                if (users.size() >= limit) {
+                    break;
+                }
+                if (!overriddenIds.contains(user.getUserId())) {
+                    users.add(user);
+                }
+            }
+            return users;
+        });
+    }
+
+    /**
+     * Merge two lists of users ordered by user id.
+     * @param mongoUsers users from mongodb.
+     * @param upstreamCandidates users from JsonPlaceholder.
+     * @param overriddenIds ids of JsonPlaceholder users that are overridden in mongodb and must be skipped.
+     * @param limit maximum number of users returned.
+     * @return at most limit users ordered by user id.
+     */
+    private static List<User> mergePage(List<User> mongoUsers, List<User> upstreamCandidates, Set<String> overriddenIds, int limit) {
+        List<User> users = new ArrayList<>(limit);
+        int mongoIndex = 0;
+        int upstreamIndex = 0;
+        while (users.size() < limit) {
+            while (upstreamIndex < upstreamCandidates.size() && overriddenIds.contains(upstreamCandidates.get(upstreamIndex).getUserId())) {
+                upstreamIndex++;
+            }
+
+            User mongoUser = mongoIndex < mongoUsers.size() ? mongoUsers.get(mongoIndex) : null;
+            User upstreamUser = upstreamIndex < upstreamCandidates.size() ? upstreamCandidates.get(upstreamIndex) : null;
+            if (mongoUser == null && upstreamUser == null) {
+                break;
+            }
+
+            if (upstreamUser == null || (mongoUser != null && UserIdComparator.INSTANCE.compare(mongoUser.getUserId(), upstreamUser.getUserId()) < 0)) {
+                users.add(mongoUser);
+                mongoIndex++;
+            } else {
+                users.add(upstreamUser);
+                upstreamIndex++;
+            }
+        }
 
-        // Combining users.
-        mongoUsers.addAll(users);
-        return mongoUsers;
+        return users;
     }
 
     public User getUser(String userId) throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
-        log.info("Getting user with id: {}", userId);
+        return getUser(userId, null);
+    }
+
+    /**
+     * Get user with given id from mongodb or JsonPlaceholder.
+     * @param userId id with which we do the query.
+     * @param fields fields read from mongodb. All fields are read if null.
+     * @return {@link User}.
+     * @throws JsonPlaceholderClient.JsonPlaceHolderRestException with status code 404 if user is not found.
+     */
+    @WithSpan
+    public User getUser(String userId, UserFields fields) throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        log.info("Getting user with id: {} and fields: {}", userId, fields);
+
+        // Start querying JsonPlaceholder already if speculative lookups are enabled.
+        CompletableFuture<User> upstreamUser = speculativeUpstreamLookup
+            ? jsonPlaceholderUsers.getUser(userId).subscribeAsCompletionStage()
+            : null
+        ;
 
         // Query mongodb for given userId.
-        Optional<User> userOptional = User.findByUserId(userId);
+        Optional<User> userOptional;
+        try {
+            userOptional = metrics.mongo("find-by-user-id", () -> User.findByUserId(userId, projection(fields)));
+        } catch (RuntimeException e) {
+            if (upstreamUser != null) {
+                upstreamUser.cancel(false);
+            }
+            throw e;
+        }
 
-        // If user is found, return.
+        // If user is found, return and discard the speculative upstream lookup.
         if (userOptional.isPresent()) {
+            if (upstreamUser != null) {
+                upstreamUser.cancel(false);
+            }
             return userOptional.get();
         }
 
         // Query user from JsonPlaceholder.
-        return client.getUser(userId);
+        return JsonPlaceholderClient.await(
+            upstreamUser != null ? upstreamUser : jsonPlaceholderUsers.getUser(userId).subscribeAsCompletionStage()
+        );
+    }
+
+    /**
+     * Get the ETag of all users without reading them.
+     * <p>
+     * Combines the revision of mongodb users with the hash of JsonPlaceholder users, so it changes whenever either
+     * of them does. The revision is read before any users are, so the ETag is never newer than the users it is sent with.
+     * @return ETag of all users.
+     */
+    @WithSpan
+    public String getUsersETag() throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        long mongoRevision = metrics.mongo("read-revision", () -> revision.current());
+        return mongoRevision + "-" + JsonPlaceholderClient.await(jsonPlaceholderUsers.getUsersETag());
+    }
+
+    /**
+     * Get the ETag of user with given id without reading the user.
+     * @param userId id with which we do the query.
+     * @return ETag of the user. Null if none can be given without reading the user.
+     * @throws JsonPlaceholderClient.JsonPlaceHolderRestException with status code 404 if user is not found.
+     */
+    @WithSpan
+    public String getUserETag(String userId) throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        Optional<String> version = metrics.mongo("find-version", () -> User.findVersion(userId));
+        if (version.isPresent()) {
+            return "m" + version.get();
+        }
+
+        String upstreamETag = JsonPlaceholderClient.await(jsonPlaceholderUsers.getUserETag(userId));
+        return upstreamETag == null ? null : "j" + upstreamETag;
     }
 
+    @WithSpan
     public User createNewUser(User user) {
         log.info("Creating new user.");
 
-        // Generating new userId based on the number of existing users.
-        String id = String.valueOf(User.count() + JP_USERS + 1);
+        // Allocating an id that no other user has.
+        String id = idAllocator.nextId();
 
         // Add user info to mongodb.
         user.setUserId(id);
-        user.persistOrUpdate();
+        user.setVersion(newVersion());
+        metrics.mongo("persist", () -> user.persistOrUpdate());
+        metrics.mongo("bump-revision", () -> revision.bump());
+        responseCache.invalidateUsers();
+        autocomplete.add(user);
 
         return user;
     }
 
+    /**
+     * Update only the fields given for an existing user with a single write.
+     * <p>
+     * A user only found in JsonPlaceholder is saved to mongodb on its first update, seeded with its JsonPlaceholder
+     * fields. The seed is taken from the cached JsonPlaceholder users, so JsonPlaceholder is only asked if nothing has
+     * been cached yet.
+     * @param user user id and the fields that are changed. Null fields are left as they are.
+     * @throws JsonPlaceholderClient.JsonPlaceHolderRestException with status code 404 if user is not found.
+     * @throws JsonProcessingException if JsonPlaceholder has to be asked for the user and reading it fails.
+     */
+    @WithSpan
     public void updateExistingUser(User user) throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
         log.info("Updating user");
 
-        // Check that a user with id exists.
-        // Propagate exception if one occurs.
-        var existingUser = getUser(user.getUserId());
+        String userId = user.getUserId();
+        Optional<Map<String, User>> upstreamUsers = jsonPlaceholderUsers.peek();
+        User seed = upstreamUsers.map(users -> users.get(userId)).orElse(null);
+
+        UpdateResult result = metrics.mongo("update-one", () -> User.<User>mongoCollection().updateOne(
+            Filters.eq("userId", userId),
+            partialUpdate(user, seed),
+            new UpdateOptions().upsert(seed != null)
+        ));
+
+        if (result.getMatchedCount() == 0 && result.getUpsertedId() == null) {
+            if (upstreamUsers.isPresent()) {
+                throw new JsonPlaceholderClient.JsonPlaceHolderRestException(
+                    String.format("User with id: %s was not found.", userId),
+                    404
+                );
+            }
+
+            // Nothing is cached yet, so JsonPlaceholder has to be asked whether the user exists.
+            // Propagate exception if one occurs.
+            User upstreamUser = JsonPlaceholderClient.await(jsonPlaceholderUsers.getUser(userId));
+            metrics.mongo("update-one", () -> User.<User>mongoCollection().updateOne(
+                Filters.eq("userId", userId),
+                partialUpdate(user, upstreamUser),
+                new UpdateOptions().upsert(true)
+            ));
+        }
+
+        metrics.mongo("bump-revision", () -> revision.bump());
+        responseCache.invalidateUser(userId);
+        autocomplete.update(user);
+    }
+
+    /**
+     * Build an update that sets the given fields of a user and a new version.
+     * @param user the fields that are changed. Null fields are left as they are.
+     * @param seed fields set only if the update inserts the user. Fields also given in user are left out. May be null.
+     * @return update document.
+     */
+    private static BsonDocument partialUpdate(User user, User seed) {
+        BsonDocument set = User.leafFields(user);
+        set.put("version", new BsonString(newVersion()));
+        BsonDocument update = new BsonDocument("$set", set);
+
+        if (seed != null) {
+            // A path can only be in one operator, and neither can a path and its parent.
+            BsonDocument setOnInsert = User.leafFields(seed);
+            setOnInsert.keySet().removeIf(path -> set.keySet().stream().anyMatch(setPath ->
+                path.equals(setPath) || path.startsWith(setPath + ".") || setPath.startsWith(path + ".")
+            ));
+            if (!setOnInsert.isEmpty()) {
+                update.put("$setOnInsert", setOnInsert);
+            }
+        }
+
+        return update;
+    }
+
+    /**
+     * Create several new users with a single unordered bulk write.
+     * <p>
+     * Every user is validated before anything is written and ids are allocated for the valid ones in one go.
+     * A failing user does not stop the others from being saved.
+     * @param users new users. Ids must be left empty.
+     * @return a {@link BatchResult} for each user in request order.
+     */
+    @WithSpan
+    public List<BatchResult> createNewUsers(List<User> users) {
+        log.info("Creating {} new users.", users.size());
+
+        BatchResult[] results = new BatchResult[users.size()];
+
+        // Validate all users before allocating any ids.
+        List<Integer> valid = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (user == null || user.getUserId() != null) {
+                results[i] = BatchResult.failure(i, null, 400, "User id must be left empty.");
+            } else {
+                valid.add(i);
+            }
+        }
+
+        // Allocating ids for every valid user at once.
+        List<String> ids = idAllocator.nextIds(valid.size());
+
+        List<WriteModel<User>> writes = new ArrayList<>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            User user = users.get(valid.get(i));
+            user.setUserId(ids.get(i));
+            user.setId(new ObjectId());
+            user.setVersion(newVersion());
+            writes.add(new InsertOneModel<>(user));
+        }
+
+        bulkWrite(users, valid, writes, results, 201);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Update the given fields of several existing users with a single unordered bulk write.
+     * <p>
+     * Existence of every user is checked with one projection query to mongodb and, only if some users are missing
+     * from it, one lookup of JsonPlaceholder users. Users only found in JsonPlaceholder are seeded like in
+     * {@link #updateExistingUser(User)}. A failing user does not stop the others from being saved.
+     * @param users existing users with changes made to them.
+     * @return a {@link BatchResult} for each user in request order.
+     * @throws JsonPlaceholderClient.JsonPlaceHolderRestException if JsonPlaceholder users are needed and fetching them fails.
+     * @throws JsonProcessingException if JsonPlaceholder users are needed and reading them fails.
+     */
+    @WithSpan
+    public List<BatchResult> updateExistingUsers(List<User> users) throws JsonPlaceholderClient.JsonPlaceHolderRestException, JsonProcessingException {
+        log.info("Updating {} users.", users.size());
+
+        BatchResult[] results = new BatchResult[users.size()];
+
+        // Validate all users before querying anything.
+        List<Integer> valid = new ArrayList<>(users.size());
+        Set<String> seenIds = new HashSet<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (user == null || user.getUserId() == null || user.getUserId().isEmpty()) {
+                results[i] = BatchResult.failure(i, null, 400, "User id must not be empty.");
+            } else if (!seenIds.add(user.getUserId())) {
+                results[i] = BatchResult.failure(i, user.getUserId(), 400, "User id appears more than once in the batch.");
+            } else {
+                valid.add(i);
+            }
+        }
+
+        // Check which users exist in mongodb and JsonPlaceholder.
+        Map<String, ObjectId> mongoIds = metrics.mongo(
+            "find-object-ids",
+            () -> User.findObjectIdsIn(valid.stream().map(i -> users.get(i).getUserId()).toList())
+        );
+        Map<String, User> upstreamUsers = new HashMap<>();
+        if (mongoIds.size() < valid.size()) {
+            JsonPlaceholderClient.await(jsonPlaceholderUsers.getUsers()).forEach(user -> upstreamUsers.put(user.getUserId(), user));
+        }
+
+        List<Integer> written = new ArrayList<>(valid.size());
+        List<WriteModel<User>> writes = new ArrayList<>(valid.size());
+        for (int i : valid) {
+            User user = users.get(i);
+            ObjectId mongoId = mongoIds.get(user.getUserId());
+            User upstreamUser = upstreamUsers.get(user.getUserId());
+
+            if (mongoId != null) {
+                writes.add(new UpdateOneModel<>(Filters.eq("_id", mongoId), partialUpdate(user, null)));
+
+            } else if (upstreamUser != null) {
+                // First update of a JsonPlaceholder user. The unique index makes sure it is only inserted once.
+                writes.add(new UpdateOneModel<>(
+                    Filters.eq("userId", user.getUserId()),
+                    partialUpdate(user, upstreamUser),
+                    new UpdateOptions().upsert(true)
+                ));
+
+            } else {
+                results[i] = BatchResult.failure(i, user.getUserId(), 404, "User was not found.");
+                continue;
+            }
+            written.add(i);
+        }
 
-        user.setId(existingUser.id);
-        user.persistOrUpdate();
+        bulkWrite(users, written, writes, results, 200);
+        return Arrays.asList(results);
     }
-}
\ No newline at end of file
+
+    /**
+     * Apply writes with a single unordered bulk write and record the result of each written user.
+     * @param users all users of the batch.
+     * @param indexes position of the user of each write in the batch.
+     * @param writes writes to apply.
+     * @param results where the result of each written user is set.
+     * @param successStatus status code of a successful write.
+     */
+    private void bulkWrite(List<User> users, List<Integer> indexes, List<WriteModel<User>> writes, BatchResult[] results, int successStatus) {
+        Map<Integer, BulkWriteError> errors = new HashMap<>();
+
+        if (!writes.isEmpty()) {
+            try {
+                metrics.mongo("bulk-write", () -> User.<User>mongoCollection().bulkWrite(writes, new BulkWriteOptions().ordered(false)));
+            } catch (MongoBulkWriteException e) {
+                e.getWriteErrors().forEach(error -> errors.put(error.getIndex(), error));
+            }
+
+            // Some writes may have failed, but the ones that did not still changed the users.
+            metrics.mongo("bump-revision", () -> revision.bump());
+            responseCache.invalidateUsers();
+        }
+
+        for (int i = 0; i < indexes.size(); i++) {
+            int index = indexes.get(i);
+            String userId = users.get(index).getUserId();
+            BulkWriteError error = errors.get(i);
+
+            if (error == null) {
+                responseCache.invalidateUser(userId);
+                // Created users are whole, updated ones only carry the changed fields.
+                if (successStatus == 201) {
+                    autocomplete.add(users.get(index));
+                } else {
+                    autocomplete.update(users.get(index));
+                }
+                results[index] = BatchResult.success(index, userId, successStatus);
+            } else {
+                log.error("Writing user with id: {} failed: {}", userId, error.getMessage());
+                int status = error.getCategory() == ErrorCategory.DUPLICATE_KEY ? 409 : 500;
+                results[index] = BatchResult.failure(index, userId, status, error.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Projection of the requested fields.
+     * @param fields requested fields. May be null.
+     * @return projection for mongodb. Null if all fields are requested.
+     */
+    private static Bson projection(UserFields fields) {
+        return fields == null ? null : fields.projection();
+    }
+
+    /**
+     * New version for a user that is being written. Unique across instances without a round-trip to mongodb.
+     * @return version string.
+     */
+    private static String newVersion() {
+        return new ObjectId().toHexString();
+    }
+
+    /**
+     * A page of users.
+     * @param users users on the page ordered by user id.
+     * @param next cursor for the next page. Null if there are no more users.
+     */
+    public record UsersPage(List<User> users, String next) {}
+}
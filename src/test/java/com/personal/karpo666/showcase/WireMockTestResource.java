@@ -1,25 +1,74 @@
 package com.personal.karpo666.showcase;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
 import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
 import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 
+/**
+ * Runs WireMock in place of JsonPlaceholder.
+ * <p>
+ * Latency and errors can be injected into every response with the init args {@link #LATENCY}, {@link #LATENCY_SIGMA}
+ * and {@link #ERROR_RATE}. Nothing is injected by default.
+ */
 public class WireMockTestResource implements QuarkusTestResourceLifecycleManager {
 
+    // Median delay of every response in milliseconds.
+    public static final String LATENCY = "latency";
+
+    // Sigma of the log-normal distribution of delays. Delays are fixed if 0.
+    public static final String LATENCY_SIGMA = "latency-sigma";
+
+    // Share of requests answered with 503-Service Unavailable instead of their stub.
+    public static final String ERROR_RATE = "error-rate";
+
     WireMockServer wireMockServer;
 
+    private double latency;
+    private double latencySigma;
+    private double errorRate;
+
     public static String TEST_ID = "TEST_ID";
+    public static String USERS_ETAG = "\"users-v1\"";
+    public static String RETRY_ID = "RETRY_ID";
+    public static String SLOW_ID = "SLOW_ID";
+    public static String FAILING_ID = "FAILING_ID";
+
+    // Users served under this path answer quickly, then slowly once, then quickly again. Used to test hedging.
+    public static String HEDGED_USERS_PATH = "/hedged-users";
+
+    // How long the user with SLOW_ID takes to answer in milliseconds.
+    public static int SLOW_DELAY = 2000;
+
+    @Override
+    public void init(Map<String, String> initArgs) {
+        latency = Double.parseDouble(initArgs.getOrDefault(LATENCY, "0"));
+        latencySigma = Double.parseDouble(initArgs.getOrDefault(LATENCY_SIGMA, "0"));
+        errorRate = Double.parseDouble(initArgs.getOrDefault(ERROR_RATE, "0"));
+    }
 
     @Override
     public Map<String, String> start() {
-        wireMockServer = new WireMockServer(8089);
+        var options = options().port(8089);
+        if (latency > 0 || errorRate > 0) {
+            options.extensions(new UpstreamFaults(latency, latencySigma, errorRate));
+        }
+
+        wireMockServer = new WireMockServer(options);
         wireMockServer.start();
 
         setupJsonPlaceholderStubs(wireMockServer);
@@ -45,11 +94,24 @@ public class WireMockTestResource implements QuarkusTestResourceLifecycleManager
                     aResponse()
                         .withStatus(200)
                         .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .withHeader(HttpHeaders.ETAG, USERS_ETAG)
                         .withBodyFile("get_all_users_response.json")
                 )
                 .willSetStateTo("USERS_NOT_FOUND")
         );
 
+        // Conditional requests with the current ETag are answered regardless of the scenario state.
+        wireMockServer.stubFor(
+            get("/users").atPriority(1)
+                .withHeader(HttpHeaders.ACCEPT, equalTo(MediaType.APPLICATION_JSON))
+                .withHeader(HttpHeaders.IF_NONE_MATCH, equalTo(USERS_ETAG))
+                .willReturn(
+                    aResponse()
+                        .withStatus(304)
+                        .withHeader(HttpHeaders.ETAG, USERS_ETAG)
+                )
+        );
+
         wireMockServer.stubFor(
             get("/users").inScenario("TEST_GET_USERS")
                 .whenScenarioStateIs("USERS_NOT_FOUND")
@@ -98,5 +160,139 @@ public class WireMockTestResource implements QuarkusTestResourceLifecycleManager
                         .withBody("{}")
                 )
         );
+
+        // Fails once on JsonPlaceholder's side and then recovers. Used to test retries.
+        wireMockServer.stubFor(
+            get("/users/" + RETRY_ID).inScenario("TEST_RETRY")
+                .whenScenarioStateIs(STARTED)
+                .withHeader(HttpHeaders.ACCEPT, equalTo(MediaType.APPLICATION_JSON))
+                .willReturn(
+                    aResponse()
+                        .withStatus(503)
+                )
+                .willSetStateTo("RECOVERED")
+        );
+
+        wireMockServer.stubFor(
+            get("/users/" + RETRY_ID).inScenario("TEST_RETRY")
+                .whenScenarioStateIs("RECOVERED")
+                .withHeader(HttpHeaders.ACCEPT, equalTo(MediaType.APPLICATION_JSON))
+                .willReturn(
+                    aResponse()
+                        .withStatus(200)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .withBodyFile("get_user_response.json")
+                )
+        );
+
+        // Answers, but too slowly. Used to test timeouts.
+        wireMockServer.stubFor(
+            get("/users/" + SLOW_ID)
+                .withHeader(HttpHeaders.ACCEPT, equalTo(MediaType.APPLICATION_JSON))
+                .willReturn(
+                    aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(SLOW_DELAY)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .withBodyFile("get_user_response.json")
+                )
+        );
+
+        // Always fails on JsonPlaceholder's side. Used to open the circuit breaker.
+        wireMockServer.stubFor(
+            get("/users/" + FAILING_ID)
+                .withHeader(HttpHeaders.ACCEPT, equalTo(MediaType.APPLICATION_JSON))
+                .willReturn(
+                    aResponse()
+                        .withStatus(500)
+                )
+        );
+
+        wireMockServer.stubFor(
+            get(HEDGED_USERS_PATH).inScenario("TEST_HEDGE")
+                .whenScenarioStateIs(STARTED)
+                .withHeader(HttpHeaders.ACCEPT, equalTo(MediaType.APPLICATION_JSON))
+                .willReturn(
+                    aResponse()
+                        .withStatus(200)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .withBodyFile("get_all_users_response.json")
+                )
+                .willSetStateTo("SLOW")
+        );
+
+        wireMockServer.stubFor(
+            get(HEDGED_USERS_PATH).inScenario("TEST_HEDGE")
+                .whenScenarioStateIs("SLOW")
+                .withHeader(HttpHeaders.ACCEPT, equalTo(MediaType.APPLICATION_JSON))
+                .willReturn(
+                    aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(SLOW_DELAY)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .withBodyFile("get_all_users_response.json")
+                )
+                .willSetStateTo("FAST")
+        );
+
+        wireMockServer.stubFor(
+            get(HEDGED_USERS_PATH).inScenario("TEST_HEDGE")
+                .whenScenarioStateIs("FAST")
+                .withHeader(HttpHeaders.ACCEPT, equalTo(MediaType.APPLICATION_JSON))
+                .willReturn(
+                    aResponse()
+                        .withStatus(200)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .withBodyFile("get_all_users_response.json")
+                )
+        );
+
+        // Any other user exists. Stateless, so it can be requested any number of times.
+        wireMockServer.stubFor(
+            get(urlPathMatching("/users/[0-9]+")).atPriority(10)
+                .withHeader(HttpHeaders.ACCEPT, equalTo(MediaType.APPLICATION_JSON))
+                .willReturn(
+                    aResponse()
+                        .withStatus(200)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .withBodyFile("get_user_response.json")
+                )
+        );
+    }
+
+    /**
+     * Delays every response and replaces a share of them with 503-Service Unavailable.
+     */
+    private static class UpstreamFaults extends ResponseDefinitionTransformer {
+
+        private final double latency;
+        private final double latencySigma;
+        private final double errorRate;
+
+        UpstreamFaults(double latency, double latencySigma, double errorRate) {
+            this.latency = latency;
+            this.latencySigma = latencySigma;
+            this.errorRate = errorRate;
+        }
+
+        @Override
+        public ResponseDefinition transform(Request request, ResponseDefinition responseDefinition, FileSource files, Parameters parameters) {
+            ResponseDefinitionBuilder builder = ThreadLocalRandom.current().nextDouble() < errorRate
+                ? aResponse().withStatus(503)
+                : ResponseDefinitionBuilder.like(responseDefinition);
+
+            if (latencySigma > 0) {
+                builder.withLogNormalRandomDelay(latency, latencySigma);
+            } else if (latency > 0) {
+                builder.withFixedDelay((int) latency);
+            }
+
+            return builder.build();
+        }
+
+        @Override
+        public String getName() {
+            return "upstream-faults";
+        }
     }
 }
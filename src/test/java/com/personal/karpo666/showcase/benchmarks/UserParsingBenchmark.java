@@ -0,0 +1,53 @@
+package com.personal.karpo666.showcase.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.personal.karpo666.showcase.models.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the JsonPlaceholder user list the way JsonPlaceholderClient does it.
+ * <p>
+ * {@link #parseFromString()} is the previous implementation, which decoded the body to a string and created a new
+ * type reference for every response. Allocations per operation are reported by the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserParsingBenchmark {
+
+    ObjectMapper mapper;
+    ObjectReader usersReader;
+    byte[] body;
+
+    @Setup
+    public void setup() throws IOException {
+        mapper = new ObjectMapper();
+        usersReader = mapper.readerFor(new TypeReference<List<User>>() {});
+
+        try (InputStream fixture = getClass().getResourceAsStream("/__files/get_all_users_response.json")) {
+            body = fixture.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public List<User> parseFromString() throws IOException {
+        String decoded = new String(body, StandardCharsets.UTF_8);
+        return mapper.readValue(decoded, new TypeReference<>() {});
+    }
+
+    @Benchmark
+    public List<User> parseFromBytes() throws IOException {
+        return usersReader.readValue(body);
+    }
+}
@@ -0,0 +1,82 @@
+package com.personal.karpo666.showcase.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.personal.karpo666.showcase.FakeFactory;
+import com.personal.karpo666.showcase.models.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Reading and writing users with Jackson, the way they are read from JsonPlaceholder and written to api clients.
+ * <p>
+ * Single users are read from the JsonPlaceholder fixture. Lists are built with {@link FakeFactory} so that their size
+ * can be varied beyond the ten users JsonPlaceholder has.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserSerializationBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    int users;
+
+    ObjectReader userReader;
+    ObjectReader usersReader;
+    ObjectWriter userWriter;
+    ObjectWriter usersWriter;
+
+    byte[] userBody;
+    byte[] usersBody;
+    User user;
+    List<User> userList;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        userReader = mapper.readerFor(User.class);
+        usersReader = mapper.readerFor(new TypeReference<List<User>>() {});
+        userWriter = mapper.writerFor(User.class);
+        usersWriter = mapper.writerFor(new TypeReference<List<User>>() {});
+
+        try (InputStream fixture = getClass().getResourceAsStream("/__files/get_user_response.json")) {
+            userBody = fixture.readAllBytes();
+        }
+        user = userReader.readValue(userBody);
+
+        userList = IntStream.rangeClosed(1, users)
+            .mapToObj(i -> FakeFactory.newUserWithAdditionalInfo(String.valueOf(i)))
+            .toList();
+        usersBody = usersWriter.writeValueAsBytes(userList);
+    }
+
+    @Benchmark
+    public User readUser() throws IOException {
+        return userReader.readValue(userBody);
+    }
+
+    @Benchmark
+    public byte[] writeUser() throws IOException {
+        return userWriter.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public List<User> readUsers() throws IOException {
+        return usersReader.readValue(usersBody);
+    }
+
+    @Benchmark
+    public byte[] writeUsers() throws IOException {
+        return usersWriter.writeValueAsBytes(userList);
+    }
+}
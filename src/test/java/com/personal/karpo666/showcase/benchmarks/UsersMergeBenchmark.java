@@ -0,0 +1,58 @@
+package com.personal.karpo666.showcase.benchmarks;
+
+import com.personal.karpo666.showcase.FakeFactory;
+import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.services.UsersService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Cost of merging mongodb and JsonPlaceholder users as the mongodb collection grows.
+ * <p>
+ * {@link #listContainsMerge()} is the previous implementation and is kept as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsersMergeBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    int mongoUsers;
+
+    @Param({"10", "100", "1000"})
+    int upstreamUsers;
+
+    List<User> mongo;
+    List<User> upstream;
+
+    @Setup
+    public void setup() {
+        // Every other JsonPlaceholder user is overridden in mongodb.
+        mongo = new ArrayList<>(IntStream.rangeClosed(1, mongoUsers)
+            .mapToObj(i -> FakeFactory.newUser(String.valueOf(i % 2 == 0 && i <= upstreamUsers ? i : upstreamUsers + i)))
+            .toList());
+        upstream = IntStream.rangeClosed(1, upstreamUsers)
+            .mapToObj(i -> FakeFactory.newUser(String.valueOf(i)))
+            .toList();
+    }
+
+    @Benchmark
+    public List<User> hashMerge() {
+        return UsersService.merge(mongo, upstream);
+    }
+
+    @Benchmark
+    public List<User> listContainsMerge() {
+        List<String> mongoIds = mongo.stream().map(User::getUserId).toList();
+        List<User> users = new ArrayList<>(mongo);
+        users.addAll(upstream.stream().filter(user -> !mongoIds.contains(user.getUserId())).toList());
+        return users;
+    }
+}
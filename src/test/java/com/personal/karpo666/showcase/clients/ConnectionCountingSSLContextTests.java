@@ -0,0 +1,38 @@
+package com.personal.karpo666.showcase.clients;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionCountingSSLContextTests {
+
+    private final Counter connections = new SimpleMeterRegistry().counter("test");
+
+    @Test
+    void testEveryEngineIsCountedAsConnection() throws Exception {
+        SSLContext context = new ConnectionCountingSSLContext(SSLContext.getDefault(), connections);
+
+        SSLEngine engine = context.createSSLEngine("jsonplaceholder.typicode.com", 443);
+        context.createSSLEngine("jsonplaceholder.typicode.com", 443);
+
+        assertEquals("jsonplaceholder.typicode.com", engine.getPeerHost());
+        assertEquals(443, engine.getPeerPort());
+        assertEquals(2, connections.count());
+    }
+
+    @Test
+    void testEverythingElseIsLeftToDelegate() throws Exception {
+        SSLContext delegate = SSLContext.getDefault();
+        SSLContext context = new ConnectionCountingSSLContext(delegate, connections);
+
+        assertEquals(delegate.getProtocol(), context.getProtocol());
+        assertSame(delegate.getClientSessionContext(), context.getClientSessionContext());
+        assertArrayEquals(delegate.getDefaultSSLParameters().getProtocols(), context.getDefaultSSLParameters().getProtocols());
+        assertEquals(0, connections.count());
+    }
+}
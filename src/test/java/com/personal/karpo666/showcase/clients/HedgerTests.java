@@ -0,0 +1,74 @@
+package com.personal.karpo666.showcase.clients;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgerTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void testNothingIsHedgedWithoutSamples() {
+        Hedger hedger = new Hedger(registry, "test", 0.5, 1.0, 10, Duration.ofMillis(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = hedger.execute(() -> {
+            calls.incrementAndGet();
+            return Uni.createFrom().item("RESULT");
+        }).await().atMost(Duration.ofSeconds(5));
+
+        assertEquals("RESULT", result);
+        assertEquals(1, calls.get());
+        assertNull(hedger.currentDelay());
+    }
+
+    @Test
+    void testSlowRequestIsHedged() {
+        Hedger hedger = warmedUp(1.0);
+        AtomicInteger calls = new AtomicInteger();
+
+        // The first request never answers, so only a hedge can.
+        String result = hedger.execute(() -> calls.incrementAndGet() == 1
+            ? Uni.createFrom().<String>nothing()
+            : Uni.createFrom().item("HEDGED")
+        ).await().atMost(Duration.ofSeconds(5));
+
+        assertEquals("HEDGED", result);
+        assertEquals(2, calls.get());
+        assertEquals(1.0, registry.get("jsonplaceholder.hedge.wins").counter().count());
+    }
+
+    @Test
+    void testHedgesAreLimitedByBudget() {
+        Hedger hedger = warmedUp(0.0);
+        AtomicInteger calls = new AtomicInteger();
+
+        // Without budget the slow request is left to answer on its own.
+        String result = hedger.execute(() -> calls.incrementAndGet() == 1
+            ? Uni.createFrom().item("SLOW").onItem().delayIt().by(Duration.ofMillis(200))
+            : Uni.createFrom().item("HEDGED")
+        ).await().atMost(Duration.ofSeconds(5));
+
+        assertEquals("SLOW", result);
+        assertEquals(1, calls.get());
+        assertEquals(1.0, registry.get("jsonplaceholder.hedge.requests").tag("result", "over-budget").counter().count());
+    }
+
+    /**
+     * Hedger that has seen enough fast requests to hedge after a few milliseconds.
+     */
+    private Hedger warmedUp(double budget) {
+        Hedger hedger = new Hedger(registry, "test", 0.5, budget, 10, Duration.ofMillis(5));
+        for (int i = 0; i < 10; i++) {
+            hedger.execute(() -> Uni.createFrom().item("WARM-UP")).await().indefinitely();
+        }
+        assertNotNull(hedger.currentDelay());
+        return hedger;
+    }
+}
@@ -0,0 +1,90 @@
+package com.personal.karpo666.showcase.clients;
+
+import com.personal.karpo666.showcase.WireMockTestResource;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.faulttolerance.api.CircuitBreakerMaintenance;
+import io.smallrye.faulttolerance.api.CircuitBreakerState;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Failures raised by fault tolerance instead of JsonPlaceholder must reach callers as
+ * {@link JsonPlaceholderClient.JsonPlaceHolderRestException} with a matching status code.
+ */
+@QuarkusTest
+@QuarkusTestResource(value = WireMockTestResource.class, restrictToAnnotatedClass = true)
+@TestProfile(JsonPlaceholderClientFaultToleranceTests.Profile.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class JsonPlaceholderClientFaultToleranceTests {
+
+    @Inject
+    JsonPlaceholderClient client;
+
+    @Inject
+    CircuitBreakerMaintenance circuitBreakers;
+
+    @Test
+    @Order(1)
+    void testTimeoutIsAnsweredWith504() {
+        JsonPlaceholderClient.JsonPlaceHolderRestException e =
+            assertThrows(
+                JsonPlaceholderClient.JsonPlaceHolderRestException.class,
+                () -> JsonPlaceholderClient.await(client.getUserAsync(WireMockTestResource.SLOW_ID))
+            )
+        ;
+
+        assertEquals(504, e.getStatusCode());
+    }
+
+    @Test
+    @Order(2)
+    void testOpenCircuitBreakerIsAnsweredWith503() {
+        for (int i = 0; i < 10 && circuitBreakers.currentState(JsonPlaceholderClient.USER_CIRCUIT_BREAKER) != CircuitBreakerState.OPEN; i++) {
+            JsonPlaceholderClient.JsonPlaceHolderRestException e =
+                assertThrows(
+                    JsonPlaceholderClient.JsonPlaceHolderRestException.class,
+                    () -> client.getUser(WireMockTestResource.FAILING_ID)
+                )
+            ;
+            assertEquals(500, e.getStatusCode());
+        }
+        assertEquals(CircuitBreakerState.OPEN, circuitBreakers.currentState(JsonPlaceholderClient.USER_CIRCUIT_BREAKER));
+
+        // Rejected without calling JsonPlaceholder, even for a user that would be found.
+        JsonPlaceholderClient.JsonPlaceHolderRestException e =
+            assertThrows(
+                JsonPlaceholderClient.JsonPlaceHolderRestException.class,
+                () -> client.getUser("1")
+            )
+        ;
+        assertEquals(503, e.getStatusCode());
+    }
+
+    /**
+     * Single user requests time out quickly, are not retried and open the circuit breaker after a few failures.
+     */
+    public static class Profile implements QuarkusTestProfile {
+
+        private static final String GET_USER = JsonPlaceholderClient.class.getName() + "/getUserAsync/";
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                GET_USER + "Timeout/value", "500",
+                GET_USER + "Timeout/unit", "MILLIS",
+                GET_USER + "Retry/maxRetries", "0",
+                GET_USER + "CircuitBreaker/requestVolumeThreshold", "4"
+            );
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.personal.karpo666.showcase.clients;
 
 import com.personal.karpo666.showcase.WireMockTestResource;
 import com.personal.karpo666.showcase.models.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
@@ -22,6 +24,9 @@ class JsonPlaceHolderClientTests {
     @Inject
     JsonPlaceholderClient client;
 
+    @Inject
+    MeterRegistry registry;
+
     @Test
     @Order(1)
     void testGetUsers() throws Exception {
@@ -62,4 +67,47 @@ class JsonPlaceHolderClientTests {
         User response = client.getUser(WireMockTestResource.TEST_ID);
         assertNotNull(response);
     }
+
+    @Test
+    @Order(5)
+    void testGetUserAsyncNotFound() {
+        JsonPlaceholderClient.JsonPlaceHolderRestException e =
+            assertThrows(
+                JsonPlaceholderClient.JsonPlaceHolderRestException.class,
+                () -> JsonPlaceholderClient.await(client.getUserAsync(WireMockTestResource.TEST_ID))
+            )
+        ;
+
+        assertEquals(404, e.getStatusCode());
+    }
+
+    @Test
+    @Order(6)
+    void testGetUsersNotModified() throws Exception {
+        JsonPlaceholderClient.UsersResponse response = JsonPlaceholderClient.await(client.getUsersAsync(WireMockTestResource.USERS_ETAG, false));
+
+        assertTrue(response.notModified());
+        assertEquals(WireMockTestResource.USERS_ETAG, response.etag());
+    }
+
+    @Test
+    @Order(7)
+    void testGetUserRetriedWhenUpstreamFails() throws Exception {
+        User response = client.getUser(WireMockTestResource.RETRY_ID);
+        assertNotNull(response);
+    }
+
+    @Test
+    @Order(8)
+    void testRequestsAreTimedWithOneTimerPerOperationAndStatus() throws Exception {
+        Timer timer = registry.get("jsonplaceholder.client.requests").tags("operation", "get-user", "status", "200").timer();
+        long before = timer.count();
+
+        client.getUser("1");
+        client.getUser("2");
+
+        assertSame(timer, registry.get("jsonplaceholder.client.requests").tags("operation", "get-user", "status", "200").timer());
+        assertEquals(before + 2, timer.count());
+        assertTrue(timer.takeSnapshot().histogramCounts().length > 0);
+    }
 }
@@ -0,0 +1,70 @@
+package com.personal.karpo666.showcase.clients;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.personal.karpo666.showcase.WireMockTestResource;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+@QuarkusTestResource(value = WireMockTestResource.class, restrictToAnnotatedClass = true)
+class JsonPlaceholderClientTracingTests {
+
+    @Inject
+    JsonPlaceholderClient client;
+
+    @Inject
+    Tracer tracer;
+
+    @Inject
+    InMemorySpanExporter exporter;
+
+    @Test
+    void testRequestIsTracedAndPropagated() throws Exception {
+        Span parent = tracer.spanBuilder("test").startSpan();
+        try (Scope ignored = parent.makeCurrent()) {
+            assertNotNull(client.getUser(WireMockTestResource.TEST_ID));
+        } finally {
+            parent.end();
+        }
+
+        SpanData span = awaitClientSpan(parent.getSpanContext().getTraceId());
+        assertEquals("GET get-user", span.getName());
+        assertEquals(parent.getSpanContext().getSpanId(), span.getParentSpanId());
+        assertEquals(200L, span.getAttributes().get(AttributeKey.longKey("http.status_code")));
+
+        // JsonPlaceholder received the context of the client span.
+        new WireMock(8089).verifyThat(
+            getRequestedFor(urlEqualTo("/users/" + WireMockTestResource.TEST_ID))
+                .withHeader("traceparent", containing(span.getTraceId() + "-" + span.getSpanId()))
+        );
+    }
+
+    private SpanData awaitClientSpan(String traceId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            Optional<SpanData> span = exporter.getFinishedSpanItems().stream()
+                .filter(data -> data.getKind() == SpanKind.CLIENT && data.getTraceId().equals(traceId))
+                .findFirst()
+            ;
+            if (span.isPresent()) {
+                return span.get();
+            }
+            Thread.sleep(50);
+        }
+        return fail("No client span was exported.");
+    }
+}
@@ -0,0 +1,173 @@
+package com.personal.karpo666.showcase.clients;
+
+import com.personal.karpo666.showcase.FakeFactory;
+import com.personal.karpo666.showcase.models.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Expiry of cached JsonPlaceholder users, tested without the application so that ttls can be changed per test.
+ */
+class JsonPlaceholderUsersCacheExpiryTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final JsonPlaceholderClient client = mock(JsonPlaceholderClient.class);
+
+    private JsonPlaceholderUsersCache cache;
+
+    @BeforeEach
+    void init() {
+        cache = new JsonPlaceholderUsersCache();
+        cache.client = client;
+        cache.registry = registry;
+        cache.ttl = Duration.ZERO;
+        cache.staleWhileRevalidate = Duration.ZERO;
+        cache.maxSize = 1000;
+        cache.staleIfError = true;
+        cache.init();
+    }
+
+    @Test
+    void testFreshUsersAreNotFetchedAgain() throws Exception {
+        cache.ttl = Duration.ofHours(1);
+        when(client.getUsersAsync(any(), anyBoolean())).thenReturn(usersResponse(FakeFactory.newUser("1")));
+
+        JsonPlaceholderClient.await(cache.getUsers());
+        JsonPlaceholderClient.await(cache.getUser("1"));
+
+        verify(client, times(1)).getUsersAsync(any(), anyBoolean());
+        assertEquals(1, registry.get("jsonplaceholder.cache.requests").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void testExpiredUsersAreRevalidatedWithTheirETag() throws Exception {
+        when(client.getUsersAsync(any(), anyBoolean())).thenReturn(usersResponse("ETAG-1", FakeFactory.newUser("1")));
+        JsonPlaceholderClient.await(cache.getUsers());
+
+        when(client.getUsersAsync(eq("ETAG-1"), anyBoolean())).thenReturn(notModified());
+        List<User> users = JsonPlaceholderClient.await(cache.getUsers());
+
+        assertEquals(1, users.size());
+        verify(client).getUsersAsync(eq("ETAG-1"), anyBoolean());
+        assertEquals(2, registry.get("jsonplaceholder.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(1, registry.get("jsonplaceholder.cache.refreshes").tag("outcome", "not-modified").counter().count());
+    }
+
+    @Test
+    void testStaleUsersAreServedWhileRefreshedInBackground() throws Exception {
+        cache.staleWhileRevalidate = Duration.ofHours(1);
+        when(client.getUsersAsync(any(), anyBoolean())).thenReturn(usersResponse(FakeFactory.newUser("1")));
+        JsonPlaceholderClient.await(cache.getUsers());
+
+        when(client.getUsersAsync(any(), anyBoolean())).thenReturn(usersResponse(FakeFactory.newUser("1"), FakeFactory.newUser("2")));
+
+        // The stale list is served as is, the new one is fetched for the next caller.
+        assertEquals(1, JsonPlaceholderClient.await(cache.getUsers()).size());
+        verify(client, times(2)).getUsersAsync(any(), anyBoolean());
+
+        // Only the first fetch had a caller waiting for it, so only that one may be hedged.
+        verify(client).getUsersAsync(any(), eq(true));
+        verify(client).getUsersAsync(any(), eq(false));
+        assertEquals(1, registry.get("jsonplaceholder.cache.requests").tag("result", "stale").counter().count());
+        assertTrue(cache.peek().orElseThrow().containsKey("2"));
+    }
+
+    @Test
+    void testUncacheableUsersAreNotFetchedForSingleLookups() throws Exception {
+        cache.ttl = Duration.ofHours(1);
+        cache.maxSize = 1;
+        when(client.getUsersAsync(any(), anyBoolean())).thenReturn(usersResponse(FakeFactory.newUser("1"), FakeFactory.newUser("2")));
+        when(client.getUserAsync(any())).thenAnswer(invocation -> Uni.createFrom().item(FakeFactory.newUser(invocation.getArgument(0))));
+
+        assertEquals("1", JsonPlaceholderClient.await(cache.getUser("1")).getUserId());
+        assertEquals("2", JsonPlaceholderClient.await(cache.getUser("2")).getUserId());
+        assertEquals("2", JsonPlaceholderClient.await(cache.getUser("2")).getUserId());
+
+        // Only the first lookup had to find out that the list is too big.
+        verify(client, times(1)).getUsersAsync(any(), anyBoolean());
+        verify(client, times(1)).getUserAsync("1");
+        verify(client, times(2)).getUserAsync("2");
+        assertTrue(cache.peek().isEmpty());
+        assertNull(JsonPlaceholderClient.await(cache.getUserETag("1")));
+        assertEquals("HASH-2", JsonPlaceholderClient.await(cache.getUsersETag()));
+    }
+
+    @Test
+    void testUncacheableUsersAreRevalidatedWithTheirETag() throws Exception {
+        cache.maxSize = 1;
+        when(client.getUsersAsync(any(), anyBoolean())).thenReturn(usersResponse("ETAG-1", FakeFactory.newUser("1"), FakeFactory.newUser("2")));
+        when(client.getUsersAsync(eq("ETAG-1"), anyBoolean())).thenReturn(notModified());
+        when(client.getUserAsync(any())).thenAnswer(invocation -> Uni.createFrom().item(FakeFactory.newUser(invocation.getArgument(0))));
+
+        JsonPlaceholderClient.await(cache.getUser("1"));
+        JsonPlaceholderClient.await(cache.getUser("1"));
+
+        verify(client).getUsersAsync(eq("ETAG-1"), anyBoolean());
+        verify(client, times(2)).getUserAsync("1");
+    }
+
+    @Test
+    void testUncacheableUsersAreDownloadedWhenListed() throws Exception {
+        cache.ttl = Duration.ofHours(1);
+        cache.maxSize = 1;
+        when(client.getUsersAsync(any(), anyBoolean())).thenReturn(usersResponse("ETAG-1", FakeFactory.newUser("1"), FakeFactory.newUser("2")));
+
+        assertEquals(2, JsonPlaceholderClient.await(cache.getUsers()).size());
+        assertEquals(2, JsonPlaceholderClient.await(cache.getUsers()).size());
+
+        // The list is not kept, so it has to be downloaded without a validator.
+        verify(client, times(2)).getUsersAsync(any(), anyBoolean());
+        verify(client, never()).getUsersAsync(eq("ETAG-1"), anyBoolean());
+    }
+
+    @Test
+    void testExpiredUsersAreServedWhenCircuitBreakerIsOpen() throws Exception {
+        when(client.getUsersAsync(any(), anyBoolean())).thenReturn(usersResponse(FakeFactory.newUser("1")));
+        JsonPlaceholderClient.await(cache.getUsers());
+
+        when(client.getUsersAsync(any(), anyBoolean())).thenReturn(Uni.createFrom().failure(new CircuitBreakerOpenException()));
+        List<User> users = JsonPlaceholderClient.await(cache.getUsers());
+
+        assertEquals(1, users.size());
+        assertEquals(1, registry.get("jsonplaceholder.cache.requests").tag("result", "stale-if-error").counter().count());
+    }
+
+    @Test
+    void testOpenCircuitBreakerIsAnsweredWith503WithoutStaleIfError() throws Exception {
+        cache.staleIfError = false;
+        when(client.getUsersAsync(any(), anyBoolean())).thenReturn(usersResponse(FakeFactory.newUser("1")));
+        JsonPlaceholderClient.await(cache.getUsers());
+
+        when(client.getUsersAsync(any(), anyBoolean())).thenReturn(Uni.createFrom().failure(new CircuitBreakerOpenException()));
+        JsonPlaceholderClient.JsonPlaceHolderRestException e =
+            assertThrows(
+                JsonPlaceholderClient.JsonPlaceHolderRestException.class,
+                () -> JsonPlaceholderClient.await(cache.getUsers())
+            )
+        ;
+
+        assertEquals(503, e.getStatusCode());
+    }
+
+    private static Uni<JsonPlaceholderClient.UsersResponse> usersResponse(User... users) {
+        return usersResponse(null, users);
+    }
+
+    private static Uni<JsonPlaceholderClient.UsersResponse> usersResponse(String etag, User... users) {
+        return Uni.createFrom().item(new JsonPlaceholderClient.UsersResponse(List.of(users), etag, "HASH-" + users.length));
+    }
+
+    private static Uni<JsonPlaceholderClient.UsersResponse> notModified() {
+        return Uni.createFrom().item(new JsonPlaceholderClient.UsersResponse(null, null, null));
+    }
+}
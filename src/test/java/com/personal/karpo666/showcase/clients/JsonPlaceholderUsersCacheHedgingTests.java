@@ -0,0 +1,62 @@
+package com.personal.karpo666.showcase.clients;
+
+import com.personal.karpo666.showcase.WireMockTestResource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A cache miss waits for the user list, so a slow list request must be hedged.
+ */
+@QuarkusTest
+@QuarkusTestResource(value = WireMockTestResource.class, restrictToAnnotatedClass = true)
+@TestProfile(JsonPlaceholderUsersCacheHedgingTests.Profile.class)
+class JsonPlaceholderUsersCacheHedgingTests {
+
+    @Inject
+    JsonPlaceholderUsersCache cache;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Test
+    void testSlowCacheMissIsHedged() throws Exception {
+
+        // Fast. Teaches the hedger what a usual latency is.
+        assertFalse(JsonPlaceholderClient.await(cache.getUsers()).isEmpty());
+
+        // Nothing is cached, so this is a miss. The first request is slow, the hedge sent after it is not.
+        long start = System.nanoTime();
+        assertFalse(JsonPlaceholderClient.await(cache.getUsers()).isEmpty());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < WireMockTestResource.SLOW_DELAY, "Took " + elapsedMillis + " ms");
+        assertEquals(1.0, registry.get("jsonplaceholder.hedge.wins").tag("operation", "get-users").counter().count());
+    }
+
+    /**
+     * Nothing is cached between requests and every request is hedged as soon as a single latency is known.
+     */
+    public static class Profile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                "json-placeholder.url.users", WireMockTestResource.HEDGED_USERS_PATH,
+                "json-placeholder.cache.ttl", "0s",
+                "json-placeholder.cache.stale-while-revalidate", "0s",
+                "json-placeholder.hedge.enabled", "true",
+                "json-placeholder.hedge.min-samples", "1",
+                "json-placeholder.hedge.budget", "1.0"
+            );
+        }
+    }
+}
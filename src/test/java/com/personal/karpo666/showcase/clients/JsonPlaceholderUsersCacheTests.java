@@ -0,0 +1,129 @@
+package com.personal.karpo666.showcase.clients;
+
+import com.personal.karpo666.showcase.FakeFactory;
+import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserSearch;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@QuarkusTest
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class JsonPlaceholderUsersCacheTests {
+
+    @Inject
+    JsonPlaceholderUsersCache cache;
+
+    @InjectMock
+    JsonPlaceholderClient client;
+
+    private static final String USERS_ETAG = "\"users-v1\"";
+    private static final String USERS_HASH = "HASH";
+
+    @Test
+    @Order(1)
+    void testGetUsersFailsWhenNothingIsCached() {
+        when(client.getUsersAsync(any(), anyBoolean()))
+            .thenReturn(Uni.createFrom().failure(new JsonPlaceholderClient.JsonPlaceHolderRestException("Unavailable", 503)))
+        ;
+
+        JsonPlaceholderClient.JsonPlaceHolderRestException e =
+            assertThrows(
+                JsonPlaceholderClient.JsonPlaceHolderRestException.class,
+                () -> JsonPlaceholderClient.await(cache.getUsers())
+            )
+        ;
+
+        assertEquals(503, e.getStatusCode());
+        verify(client, times(1)).getUsersAsync(any(), anyBoolean());
+    }
+
+    @Test
+    @Order(2)
+    void testGetUsers() throws Exception {
+        when(client.getUsersAsync(any(), anyBoolean()))
+            .thenReturn(Uni.createFrom().item(new JsonPlaceholderClient.UsersResponse(
+                List.of(FakeFactory.newUser("1"), FakeFactory.newUser("2")),
+                USERS_ETAG,
+                USERS_HASH
+            )))
+        ;
+
+        List<User> users = JsonPlaceholderClient.await(cache.getUsers());
+
+        assertEquals(2, users.size());
+        verify(client, times(1)).getUsersAsync(any(), anyBoolean());
+    }
+
+    @Test
+    @Order(3)
+    void testGetUsersFromCache() throws Exception {
+        List<User> users = JsonPlaceholderClient.await(cache.getUsers());
+
+        assertEquals(2, users.size());
+        verify(client, times(0)).getUsersAsync(any(), anyBoolean());
+    }
+
+    @Test
+    @Order(4)
+    void testGetUserFromCache() throws Exception {
+        User user = JsonPlaceholderClient.await(cache.getUser("2"));
+
+        assertNotNull(user);
+        assertEquals("2", user.getUserId());
+        verify(client, times(0)).getUsersAsync(any(), anyBoolean());
+        verify(client, times(0)).getUserAsync("2");
+    }
+
+    @Test
+    @Order(5)
+    void testGetUserNotFound() {
+        JsonPlaceholderClient.JsonPlaceHolderRestException e =
+            assertThrows(
+                JsonPlaceholderClient.JsonPlaceHolderRestException.class,
+                () -> JsonPlaceholderClient.await(cache.getUser("1000"))
+            )
+        ;
+
+        assertEquals(404, e.getStatusCode());
+        verify(client, times(0)).getUserAsync("1000");
+    }
+
+    @Test
+    @Order(6)
+    void testGetETags() throws Exception {
+        assertEquals(USERS_HASH, JsonPlaceholderClient.await(cache.getUsersETag()));
+        assertEquals(USERS_HASH + ".2", JsonPlaceholderClient.await(cache.getUserETag("2")));
+
+        JsonPlaceholderClient.JsonPlaceHolderRestException e =
+            assertThrows(
+                JsonPlaceholderClient.JsonPlaceHolderRestException.class,
+                () -> JsonPlaceholderClient.await(cache.getUserETag("1000"))
+            )
+        ;
+        assertEquals(404, e.getStatusCode());
+        verify(client, times(0)).getUsersAsync(any(), anyBoolean());
+    }
+
+    @Test
+    @Order(7)
+    void testSearchFromCache() throws Exception {
+        List<User> byCity = JsonPlaceholderClient.await(cache.search(UserSearch.of(null, null, FakeFactory.CITY.toLowerCase(), null)));
+        List<User> byUnknownEmail = JsonPlaceholderClient.await(cache.search(UserSearch.of(null, "NOBODY@MAIL.COM", FakeFactory.CITY, null)));
+
+        assertEquals(List.of("1", "2"), byCity.stream().map(User::getUserId).toList());
+        assertTrue(byUnknownEmail.isEmpty());
+        verify(client, times(0)).getUsersAsync(any(), anyBoolean());
+    }
+}
@@ -0,0 +1,76 @@
+package com.personal.karpo666.showcase.clients;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTests {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>(new SimpleMeterRegistry(), "test");
+
+    @Test
+    void testConcurrentCallersShareExecution() {
+        AtomicInteger executions = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        var first = singleFlight.execute("key", () -> {
+            executions.incrementAndGet();
+            return Uni.createFrom().completionStage(upstream);
+        }).subscribeAsCompletionStage();
+        var second = singleFlight.execute("key", () -> {
+            executions.incrementAndGet();
+            return Uni.createFrom().item("OTHER");
+        }).subscribeAsCompletionStage();
+
+        assertEquals(1, singleFlight.inFlight());
+
+        upstream.complete("RESULT");
+
+        assertEquals("RESULT", first.join());
+        assertEquals("RESULT", second.join());
+        assertEquals(1, executions.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void testFailureIsShared() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        var first = singleFlight.execute("key", () -> Uni.createFrom().completionStage(upstream)).subscribeAsCompletionStage();
+        var second = singleFlight.execute("key", () -> Uni.createFrom().item("OTHER")).subscribeAsCompletionStage();
+
+        upstream.completeExceptionally(new IllegalStateException("FAILED"));
+
+        assertThrows(CompletionException.class, first::join);
+        assertThrows(CompletionException.class, second::join);
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void testDifferentKeysExecuteSeparately() {
+        AtomicInteger executions = new AtomicInteger();
+
+        var first = singleFlight.execute("first", () -> Uni.createFrom().item("FIRST").invoke(executions::incrementAndGet)).subscribeAsCompletionStage();
+        var second = singleFlight.execute("second", () -> Uni.createFrom().item("SECOND").invoke(executions::incrementAndGet)).subscribeAsCompletionStage();
+
+        assertEquals("FIRST", first.join());
+        assertEquals("SECOND", second.join());
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testCompletedExecutionIsNotReused() {
+        AtomicInteger executions = new AtomicInteger();
+
+        singleFlight.execute("key", () -> Uni.createFrom().item("FIRST").invoke(executions::incrementAndGet)).await().indefinitely();
+        singleFlight.execute("key", () -> Uni.createFrom().item("SECOND").invoke(executions::incrementAndGet)).await().indefinitely();
+
+        assertEquals(2, executions.get());
+    }
+}
@@ -0,0 +1,23 @@
+package com.personal.karpo666.showcase.health;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+@QuarkusTest
+class JsonPlaceholderHealthCheckTests {
+
+    @Test
+    void testCircuitBreakersClosed() {
+        given()
+            .when()
+            .get("/q/health/well")
+            .then()
+            .statusCode(200)
+            .body("checks.find { it.name == 'json-placeholder' }.status", equalTo("UP"))
+            .body("checks.find { it.name == 'json-placeholder' }.data.'json-placeholder-users'", equalTo("CLOSED"))
+        ;
+    }
+}
@@ -0,0 +1,91 @@
+package com.personal.karpo666.showcase.models;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personal.karpo666.showcase.FakeFactory;
+import org.bson.BsonDocument;
+import org.bson.codecs.BsonValueCodecProvider;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserFieldsTests {
+
+    @Test
+    void testParse() {
+        assertNull(UserFields.parse(null));
+        assertNull(UserFields.parse(" "));
+        assertNull(UserFields.parse(",,"));
+        assertEquals("address.city,id,name", UserFields.parse("name, id,address.city,name").toString());
+    }
+
+    @Test
+    void testParseUnknownField() {
+        assertThrows(IllegalArgumentException.class, () -> UserFields.parse("id,password"));
+        assertThrows(IllegalArgumentException.class, () -> UserFields.parse("address.geo.lat"));
+        assertThrows(IllegalArgumentException.class, () -> UserFields.parse("version"));
+    }
+
+    @Test
+    void testIncludes() {
+        UserFields fields = UserFields.parse("name,address.city,company");
+
+        assertTrue(fields.includes("name"));
+        assertTrue(fields.includes("address"));
+        assertTrue(fields.includes("address.city"));
+        assertTrue(fields.includes("company.bs"));
+        assertFalse(fields.includes("id"));
+        assertFalse(fields.includes("address.street"));
+        assertFalse(fields.includes("additionalInfo"));
+    }
+
+    @Test
+    void testProjectionAlwaysReadsUserId() {
+        BsonDocument projection = UserFields.parse("id,address.city").projection()
+            .toBsonDocument(BsonDocument.class, CodecRegistries.fromProviders(new BsonValueCodecProvider()));
+
+        assertEquals(Set.of("userId", "address.city"), projection.keySet());
+    }
+
+    @Test
+    void testParentAndChildProjectOnlyParent() {
+        UserFields fields = UserFields.parse("address,address.city,company.bs");
+        BsonDocument projection = fields.projection()
+            .toBsonDocument(BsonDocument.class, CodecRegistries.fromProviders(new BsonValueCodecProvider()));
+
+        assertEquals("address,company.bs", fields.toString());
+        assertEquals(Set.of("userId", "address", "company.bs"), projection.keySet());
+        assertTrue(fields.includes("address.street"));
+    }
+
+    @Test
+    void testEveryJsonPropertyCanBeRequested() throws Exception {
+        User user = FakeFactory.newUserWithAdditionalInfo("1");
+        var company = new User.Company();
+        company.setName(FakeFactory.COMPANY_NAME);
+        company.setCatchPhrase(FakeFactory.CATCH_PHRASE);
+        company.setBs(FakeFactory.BS);
+        user.setCompany(company);
+
+        Set<String> paths = new HashSet<>();
+        collectPaths("", new ObjectMapper().valueToTree(user), paths);
+
+        assertEquals(UserFields.PATHS, paths);
+    }
+
+    private static void collectPaths(String prefix, JsonNode node, Set<String> paths) {
+        node.fieldNames().forEachRemaining(name -> {
+            String path = prefix + name;
+            paths.add(path);
+
+            // Geo is a map of coordinates and can only be requested as a whole.
+            if (node.get(name).isObject() && !path.equals("address.geo")) {
+                collectPaths(path + ".", node.get(name), paths);
+            }
+        });
+    }
+}
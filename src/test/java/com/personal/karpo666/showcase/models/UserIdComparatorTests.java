@@ -0,0 +1,35 @@
+package com.personal.karpo666.showcase.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserIdComparatorTests {
+
+    @Test
+    void testNumericOrder() {
+        List<String> ids = new ArrayList<>(List.of("100", "11", "2", "10", "1", "99999999999999999999"));
+        ids.sort(UserIdComparator.INSTANCE);
+
+        assertEquals(List.of("1", "2", "10", "11", "100", "99999999999999999999"), ids);
+    }
+
+    @Test
+    void testLeadingZerosAreIgnored() {
+        assertEquals(0, UserIdComparator.INSTANCE.compare("011", "11"));
+        assertTrue(UserIdComparator.INSTANCE.compare("009", "10") < 0);
+    }
+
+    @Test
+    void testOnlyDigitsAreUserIds() {
+        assertTrue(UserIdComparator.isUserId("42"));
+        assertFalse(UserIdComparator.isUserId(null));
+        assertFalse(UserIdComparator.isUserId(""));
+        assertFalse(UserIdComparator.isUserId("a1"));
+        assertFalse(UserIdComparator.isUserId("-1"));
+        assertThrows(IllegalArgumentException.class, () -> UserIdComparator.INSTANCE.compare("1", "a"));
+    }
+}
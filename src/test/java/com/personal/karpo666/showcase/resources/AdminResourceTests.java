@@ -0,0 +1,80 @@
+package com.personal.karpo666.showcase.resources;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personal.karpo666.showcase.models.IndexUsage;
+import com.personal.karpo666.showcase.services.UserIndexes;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.keycloak.client.KeycloakTestClient;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@QuarkusTest
+class AdminResourceTests {
+
+    @InjectMock
+    UserIndexes userIndexes;
+
+    @Inject
+    ObjectMapper mapper;
+
+    KeycloakTestClient keycloakTestClient = new KeycloakTestClient();
+
+    @Test
+    void testGetIndexUsage() throws Exception {
+        when(userIndexes.getIndexUsage()).thenReturn(List.of(
+            new IndexUsage("userId_unique", List.of("userId"), 5, Instant.now())
+        ));
+
+        var resultString =
+            given()
+                .when()
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+                .get("/api/v1/admin/indexes")
+                .then()
+                .statusCode(200)
+                .extract().body().asString()
+        ;
+
+        List<IndexUsage> usage = mapper.readValue(resultString, new TypeReference<>() {});
+        assertEquals(1, usage.size());
+        assertEquals("userId_unique", usage.get(0).getName());
+        assertEquals(5, usage.get(0).getOperations());
+
+        verify(userIndexes, times(1)).getIndexUsage();
+    }
+
+    @Test
+    void testGetIndexUsageNoAuthentication() {
+        given()
+            .when()
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .get("/api/v1/admin/indexes")
+            .then()
+            .statusCode(401)
+        ;
+    }
+
+    @Test
+    void testGetIndexUsageWrongRole() {
+        given()
+            .when()
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("bob"))
+            .get("/api/v1/admin/indexes")
+            .then()
+            .statusCode(403)
+        ;
+    }
+}
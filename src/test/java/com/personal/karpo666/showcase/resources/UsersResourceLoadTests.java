@@ -0,0 +1,288 @@
+package com.personal.karpo666.showcase.resources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personal.karpo666.showcase.FakeFactory;
+import com.personal.karpo666.showcase.TestContainerTestResource;
+import com.personal.karpo666.showcase.WireMockTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.keycloak.client.KeycloakTestClient;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the users api at a fixed arrival rate against WireMock and a real mongodb, and reports latency percentiles
+ * and throughput per endpoint.
+ * <p>
+ * Requests are sent on schedule whether earlier ones have completed or not, and latency is measured from the moment
+ * a request was due. A slow server therefore shows up as latency instead of silently lowering the load.
+ * Excluded from the default build. Run with {@code mvn -Pload-test test} and tune with the system properties read in
+ * {@link Profile}, e.g. {@code -Dload.rate=500 -Dload.duration=60s}. Results are also written to
+ * {@code target/load-test-result.json}.
+ */
+@QuarkusTest
+@Tag("load-test")
+@TestProfile(UsersResourceLoadTests.Profile.class)
+class UsersResourceLoadTests {
+
+    // Requests per second.
+    private static final int RATE = Integer.getInteger("load.rate", 200);
+    private static final Duration WARMUP = Duration.parse("PT" + System.getProperty("load.warmup", "5s"));
+    private static final Duration DURATION = Duration.parse("PT" + System.getProperty("load.duration", "30s"));
+
+    // Share of requests that create or update users. The rest read them.
+    private static final double WRITE_RATIO = Double.parseDouble(System.getProperty("load.write-ratio", "0.1"));
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+
+    // JsonPlaceholder has ten users, which are read and updated by the test.
+    private static final int JP_USERS = 10;
+
+    @TestHTTPResource("/api/v1")
+    URL api;
+
+    @Inject
+    ObjectMapper mapper;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    private String token;
+
+    @Test
+    void testLoad() throws Exception {
+        token = new KeycloakTestClient().getAccessToken("alice");
+
+        run(WARMUP);
+        Map<Endpoint, Result> results = run(DURATION);
+
+        report(results);
+
+        long requests = results.values().stream().mapToLong(Result::requests).sum();
+        long errors = results.values().stream().mapToLong(Result::errors).sum();
+        assertTrue(requests > 0);
+        assertTrue(
+            errors <= requests * MAX_ERROR_RATE,
+            String.format("%d of %d requests failed, which is more than %.2f%%.", errors, requests, MAX_ERROR_RATE * 100)
+        );
+    }
+
+    /**
+     * Send requests at the configured rate for given duration and wait for all of them to complete.
+     * @param duration how long requests are sent for.
+     * @return results per endpoint.
+     */
+    private Map<Endpoint, Result> run(Duration duration) throws Exception {
+        Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+        Arrays.stream(Endpoint.values()).forEach(endpoint -> recorders.put(endpoint, new Recorder()));
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+
+        long interval = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long count = duration.toNanos() / interval;
+        long start = System.nanoTime();
+
+        for (long i = 0; i < count; i++) {
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Endpoint endpoint = Endpoint.pick(ThreadLocalRandom.current().nextDouble());
+            Recorder recorder = recorders.get(endpoint);
+            pending.add(httpClient.sendAsync(request(endpoint), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> recorder.record(
+                    System.nanoTime() - due,
+                    failure == null && response.statusCode() < 400
+                ))
+            );
+        }
+
+        // Failures are already recorded, so only completion matters here.
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new))
+            .exceptionally(failure -> null)
+            .get(1, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<Endpoint, Result> results = new EnumMap<>(Endpoint.class);
+        recorders.forEach((endpoint, recorder) -> results.put(endpoint, recorder.result(seconds)));
+        return results;
+    }
+
+    private HttpRequest request(Endpoint endpoint) throws IOException {
+        String userId = String.valueOf(ThreadLocalRandom.current().nextInt(1, JP_USERS + 1));
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .timeout(Duration.ofSeconds(30))
+        ;
+
+        return switch (endpoint) {
+            case GET_USERS -> builder.uri(uri("/users")).GET().build();
+            case GET_USER -> builder.uri(uri("/user?id=" + userId)).GET().build();
+            case CREATE_USER -> builder.uri(uri("/user"))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(FakeFactory.newUser())))
+                .build();
+            case UPDATE_USER -> builder.uri(uri("/user"))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .method("PATCH", HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(FakeFactory.newUser(userId))))
+                .build();
+        };
+    }
+
+    private URI uri(String path) {
+        return URI.create(api.toString() + path);
+    }
+
+    private void report(Map<Endpoint, Result> results) throws IOException {
+        System.out.printf("%n%-12s %10s %8s %10s %10s %10s %10s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms");
+        results.forEach((endpoint, result) -> System.out.printf(
+            "%-12s %10d %8d %10.1f %10.2f %10.2f %10.2f%n",
+            endpoint.name().toLowerCase().replace('_', '-'),
+            result.requests(),
+            result.errors(),
+            result.throughput(),
+            result.p50(),
+            result.p99(),
+            result.p999()
+        ));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("rate", RATE);
+        report.put("duration", DURATION.toString());
+        report.put("writeRatio", WRITE_RATIO);
+        report.put("results", results);
+        mapper.writerWithDefaultPrettyPrinter().writeValue(new File("target/load-test-result.json"), report);
+    }
+
+    /**
+     * Endpoints driven by the test. Writes are split evenly between creates and updates, reads between the list of
+     * all users and single users.
+     */
+    enum Endpoint {
+        GET_USERS, GET_USER, CREATE_USER, UPDATE_USER;
+
+        static Endpoint pick(double random) {
+            if (random < WRITE_RATIO) {
+                return random < WRITE_RATIO / 2 ? CREATE_USER : UPDATE_USER;
+            }
+            return random < WRITE_RATIO + (1 - WRITE_RATIO) / 2 ? GET_USERS : GET_USER;
+        }
+    }
+
+    /**
+     * Collects latencies of completed requests of one endpoint.
+     */
+    private static class Recorder {
+
+        private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(long latency, boolean success) {
+            latencies.add(latency);
+            if (!success) {
+                errors.incrementAndGet();
+            }
+        }
+
+        Result result(double seconds) {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            return new Result(
+                sorted.length,
+                errors.get(),
+                sorted.length / seconds,
+                percentile(sorted, 0.5),
+                percentile(sorted, 0.99),
+                percentile(sorted, 0.999)
+            );
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+    }
+
+    /**
+     * Outcome of the requests to one endpoint.
+     * @param requests number of completed requests.
+     * @param errors number of requests that failed or were answered with an error status.
+     * @param throughput completed requests per second.
+     * @param p50 median latency in milliseconds.
+     * @param p99 99th percentile latency in milliseconds.
+     * @param p999 99.9th percentile latency in milliseconds.
+     */
+    record Result(long requests, long errors, double throughput, double p50, double p99, double p999) {}
+
+    /**
+     * Boots the application against WireMock with injected latency and errors and against a mongodb container.
+     * A short cache ttl makes sure JsonPlaceholder is actually called during the test.
+     */
+    public static class Profile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            Map<String, String> overrides = new HashMap<>(Map.of(
+                "json-placeholder.cache.ttl", System.getProperty("load.cache-ttl", "5s"),
+                "json-placeholder.cache.stale-while-revalidate", System.getProperty("load.stale-while-revalidate", "1h"),
+                "quarkus.otel.traces.sampler", "parentbased_traceidratio",
+                "quarkus.log.category.\"com.personal.karpo666\".level", "WARN"
+            ));
+
+            // Caps the worker pool, to see how far it limits concurrency compared to virtual threads.
+            String workerThreads = System.getProperty("load.worker-threads");
+            if (workerThreads != null) {
+                overrides.put("quarkus.thread-pool.max-threads", workerThreads);
+            }
+
+            return overrides;
+        }
+
+        @Override
+        public List<TestResourceEntry> testResources() {
+            return List.of(
+                new TestResourceEntry(WireMockTestResource.class, Map.of(
+                    WireMockTestResource.LATENCY, System.getProperty("load.upstream-latency", "50"),
+                    WireMockTestResource.LATENCY_SIGMA, System.getProperty("load.upstream-latency-sigma", "0.5"),
+                    WireMockTestResource.ERROR_RATE, System.getProperty("load.upstream-error-rate", "0.01")
+                )),
+                new TestResourceEntry(TestContainerTestResource.class)
+            );
+        }
+    }
+}
@@ -5,23 +5,40 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.personal.karpo666.showcase.FakeFactory;
 import com.personal.karpo666.showcase.clients.JsonPlaceholderClient;
+import com.personal.karpo666.showcase.models.BatchResult;
 import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserSearch;
+import com.personal.karpo666.showcase.models.UserSuggestion;
+import com.personal.karpo666.showcase.services.ReactiveUsersService;
+import com.personal.karpo666.showcase.services.UserAutocomplete;
 import com.personal.karpo666.showcase.services.UsersService;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.keycloak.client.KeycloakTestClient;
+import io.restassured.common.mapper.TypeRef;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import org.jboss.resteasy.reactive.RestMediaType;
 import org.junit.jupiter.api.Test;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static io.restassured.RestAssured.given;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @QuarkusTest
@@ -30,6 +47,12 @@ class UsersResourceTests {
     @InjectMock
     UsersService usersService;
 
+    @InjectMock
+    UserAutocomplete autocomplete;
+
+    @InjectMock
+    ReactiveUsersService reactiveUsersService;
+
     @Inject
     ObjectMapper mapper;
 
@@ -37,7 +60,7 @@ class UsersResourceTests {
 
     @Test
     void testGetAllUsers() throws Exception {
-        when(usersService.getAllUsers()).thenReturn(Collections.nCopies(10, FakeFactory.newUser()));
+        when(usersService.getAllUsers(any())).thenReturn(Collections.nCopies(10, FakeFactory.newUser()));
 
         var resultString =
             given()
@@ -57,7 +80,7 @@ class UsersResourceTests {
         assertNotNull(users);
         assertEquals(10, users.size());
 
-        verify(usersService, times(1)).getAllUsers();
+        verify(usersService, times(1)).getAllUsers(any());
     }
 
     @Test
@@ -74,7 +97,7 @@ class UsersResourceTests {
 
     @Test
     void testGetAllUsersNotFound() throws Exception {
-        when(usersService.getAllUsers())
+        when(usersService.getAllUsers(any()))
             .thenThrow(new JsonPlaceholderClient.JsonPlaceHolderRestException("No users found", 404))
         ;
 
@@ -88,12 +111,12 @@ class UsersResourceTests {
             .statusCode(404)
         ;
 
-        verify(usersService, times(1)).getAllUsers();
+        verify(usersService, times(1)).getAllUsers(any());
     }
 
     @Test
     void testGetAllUsersJsonProcessingException() throws Exception {
-        when(usersService.getAllUsers()).thenThrow(JsonProcessingException.class);
+        when(usersService.getAllUsers(any())).thenThrow(JsonProcessingException.class);
         given()
             .when()
             .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
@@ -104,13 +127,218 @@ class UsersResourceTests {
             .statusCode(500)
         ;
 
-        verify(usersService, times(1)).getAllUsers();
+        verify(usersService, times(1)).getAllUsers(any());
+    }
+
+    @Test
+    void testGetUsersPage() throws Exception {
+        when(usersService.getUsersPage(eq("10"), eq(5), any()))
+            .thenReturn(new UsersService.UsersPage(Collections.nCopies(5, FakeFactory.newUser()), "15"))
+        ;
+
+        var response =
+            given()
+                .when()
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+                .queryParam("after", "10")
+                .queryParam("limit", 5)
+                .get("/api/v1/users")
+                .then()
+                .statusCode(200)
+                .extract()
+        ;
+
+        List<User> users = mapper.readValue(response.body().asString(), new TypeReference<>() {});
+        assertEquals(5, users.size());
+        assertTrue(response.header(HttpHeaders.LINK).contains("after=15"));
+
+        verify(usersService, times(1)).getUsersPage(eq("10"), eq(5), any());
+        verify(usersService, times(0)).getAllUsers(any());
+    }
+
+    @Test
+    void testGetUsersPageAfterNonNumericId() throws Exception {
+        given()
+            .when()
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .queryParam("after", "abc")
+            .get("/api/v1/users")
+            .then()
+            .statusCode(400)
+        ;
+
+        verify(usersService, times(0)).getUsersPage(any(), anyInt(), any());
+    }
+
+    @Test
+    void testGetUsersLastPage() throws Exception {
+        when(usersService.getUsersPage(isNull(), eq(5), any()))
+            .thenReturn(new UsersService.UsersPage(Collections.nCopies(3, FakeFactory.newUser()), null))
+        ;
+
+        var response =
+            given()
+                .when()
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+                .queryParam("limit", 5)
+                .get("/api/v1/users")
+                .then()
+                .statusCode(200)
+                .extract()
+        ;
+
+        assertNull(response.header(HttpHeaders.LINK));
+
+        verify(usersService, times(1)).getUsersPage(isNull(), eq(5), any());
+    }
+
+    @Test
+    void testGetUsersPageInvalidLimit() {
+        given()
+            .when()
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .queryParam("limit", 0)
+            .get("/api/v1/users")
+            .then()
+            .statusCode(400)
+        ;
+    }
+
+    @Test
+    void testStreamAllUsers() {
+        when(usersService.streamAllUsers()).thenReturn(Multi.createFrom().items(FakeFactory.newUser("1"), FakeFactory.newUser("2")));
+
+        var resultString =
+            given()
+                .when()
+                .header(HttpHeaders.ACCEPT, RestMediaType.APPLICATION_NDJSON)
+                .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+                .get("/api/v1/users/stream")
+                .then()
+                .statusCode(200)
+                .extract().body().asString()
+        ;
+
+        List<String> lines = resultString.lines().filter(line -> !line.isBlank()).toList();
+        assertEquals(2, lines.size());
+
+        verify(usersService, times(1)).streamAllUsers();
+    }
+
+    @Test
+    void testStreamAllUsersNotFound() {
+        when(usersService.streamAllUsers())
+            .thenReturn(Multi.createFrom().failure(new JsonPlaceholderClient.JsonPlaceHolderRestException("No users found", 404)))
+        ;
+
+        given()
+            .when()
+            .header(HttpHeaders.ACCEPT, RestMediaType.APPLICATION_NDJSON)
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .get("/api/v1/users/stream")
+            .then()
+            .statusCode(404)
+        ;
+    }
+
+    @Test
+    void testStreamAllUsersNoAuthentication() {
+        given()
+            .when()
+            .header(HttpHeaders.ACCEPT, RestMediaType.APPLICATION_NDJSON)
+            .get("/api/v1/users/stream")
+            .then()
+            .statusCode(401)
+        ;
+    }
+
+    @Test
+    void testSearchUsers() throws Exception {
+        when(usersService.searchUsers(any(), eq(5))).thenReturn(List.of(FakeFactory.newUser("1")));
+
+        List<User> users =
+            given()
+                .when()
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+                .queryParam("city", FakeFactory.CITY)
+                .queryParam("company", FakeFactory.COMPANY_NAME)
+                .queryParam("limit", 5)
+                .get("/api/v1/users/search")
+                .then()
+                .statusCode(200)
+                .extract().body().as(new TypeRef<>() {})
+        ;
+
+        assertEquals(1, users.size());
+        verify(usersService, times(1)).searchUsers(
+            eq(UserSearch.of(null, null, FakeFactory.CITY, FakeFactory.COMPANY_NAME)),
+            eq(5)
+        );
+    }
+
+    @Test
+    void testSearchUsersWithoutCriteria() throws Exception {
+        given()
+            .when()
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .queryParam("username", " ")
+            .get("/api/v1/users/search")
+            .then()
+            .statusCode(400)
+        ;
+
+        verify(usersService, times(0)).searchUsers(any(), anyInt());
+    }
+
+    @Test
+    void testAutocompleteUsers() throws Exception {
+        when(autocomplete.suggest("le", 10)).thenReturn(List.of(new UserSuggestion("1", "Leanne Graham", "Bret")));
+
+        List<UserSuggestion> suggestions =
+            given()
+                .when()
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+                .queryParam("prefix", "le")
+                .get("/api/v1/users/autocomplete")
+                .then()
+                .statusCode(200)
+                .extract().body().as(new TypeRef<>() {})
+        ;
+
+        assertEquals(1, suggestions.size());
+        assertEquals("Bret", suggestions.get(0).getUsername());
+    }
+
+    @Test
+    void testAutocompleteUsersEmptyPrefix() throws Exception {
+        given()
+            .when()
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .queryParam("prefix", "")
+            .get("/api/v1/users/autocomplete")
+            .then()
+            .statusCode(400)
+        ;
+
+        verify(autocomplete, times(0)).suggest(any(), anyInt());
     }
 
     @Test
     void testGetUser() throws Exception {
         final String userId = "TEST_USER_ID";
-        when(usersService.getUser(userId)).thenReturn(FakeFactory.newUser(userId));
+        when(usersService.getUser(eq(userId), any())).thenReturn(FakeFactory.newUser(userId));
         var result =
             given()
                 .when()
@@ -127,7 +355,154 @@ class UsersResourceTests {
         assertNotNull(result);
         assertEquals(userId, result.getUserId());
 
-        verify(usersService, times(1)).getUser(any(String.class));
+        verify(usersService, times(1)).getUser(any(String.class), any());
+    }
+
+    @Test
+    void testGetUserWithFields() throws Exception {
+        final String userId = "TEST_USER_ID";
+        when(usersService.getUser(eq(userId), any())).thenReturn(FakeFactory.newUser(userId));
+
+        Map<String, Object> result =
+            given()
+                .when()
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+                .queryParam("id", userId)
+                .queryParam("fields", "id,name,address.city")
+                .get("/api/v1/user")
+                .then()
+                .statusCode(200)
+                .extract().body().as(new TypeRef<>() {})
+        ;
+
+        assertEquals(Set.of("id", "name", "address"), result.keySet());
+        assertEquals(Set.of("city"), ((Map<?, ?>) result.get("address")).keySet());
+
+        verify(usersService, times(1)).getUser(eq(userId), argThat(fields -> fields.toString().equals("address.city,id,name")));
+    }
+
+    @Test
+    void testGetUserUnknownField() throws Exception {
+        given()
+            .when()
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .queryParam("id", "TEST_USER_ID")
+            .queryParam("fields", "id,password")
+            .get("/api/v1/user")
+            .then()
+            .statusCode(400)
+        ;
+
+        verify(usersService, times(0)).getUser(any(String.class), any());
+    }
+
+    @Test
+    void testGetUserReactive() throws Exception {
+        final String userId = "TEST_USER_ID";
+        AtomicBoolean onEventLoop = new AtomicBoolean();
+        when(reactiveUsersService.getUser(eq(userId), any())).thenAnswer(invocation -> {
+            onEventLoop.set(Context.isOnEventLoopThread());
+            return Uni.createFrom().item(FakeFactory.newUser(userId));
+        });
+
+        var result =
+            given()
+                .when()
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+                .queryParam("id", userId)
+                .get("/api/v1/user/reactive")
+                .then()
+                .statusCode(200)
+                .extract().body().as(User.class)
+        ;
+
+        assertEquals(userId, result.getUserId());
+        assertTrue(onEventLoop.get());
+
+        verify(reactiveUsersService, times(1)).getUser(eq(userId), any());
+        verify(usersService, times(0)).getUser(any(String.class), any());
+    }
+
+    @Test
+    void testGetUserReactiveWithFields() {
+        final String userId = "TEST_USER_ID";
+        when(reactiveUsersService.getUser(eq(userId), any())).thenReturn(Uni.createFrom().item(FakeFactory.newUser(userId)));
+
+        Map<String, Object> result =
+            given()
+                .when()
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+                .queryParam("id", userId)
+                .queryParam("fields", "id,name")
+                .get("/api/v1/user/reactive")
+                .then()
+                .statusCode(200)
+                .extract().body().as(new TypeRef<>() {})
+        ;
+
+        assertEquals(Set.of("id", "name"), result.keySet());
+    }
+
+    @Test
+    void testGetUserReactiveUnknownField() {
+        given()
+            .when()
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .queryParam("id", "TEST_USER_ID")
+            .queryParam("fields", "id,password")
+            .get("/api/v1/user/reactive")
+            .then()
+            .statusCode(400)
+        ;
+
+        verify(reactiveUsersService, times(0)).getUser(any(String.class), any());
+    }
+
+    @Test
+    void testGetUserReactiveNotFound() {
+        when(reactiveUsersService.getUser(any(String.class), any())).thenReturn(
+            Uni.createFrom().failure(new JsonPlaceholderClient.JsonPlaceHolderRestException("User not found", 404))
+        );
+
+        given()
+            .when()
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .queryParam("id", "TEST")
+            .get("/api/v1/user/reactive")
+            .then()
+            .statusCode(404)
+        ;
+    }
+
+    @Test
+    void testGetAllUsersReactive() throws Exception {
+        AtomicBoolean onEventLoop = new AtomicBoolean();
+        when(reactiveUsersService.getAllUsers(any())).thenAnswer(invocation -> {
+            onEventLoop.set(Context.isOnEventLoopThread());
+            return Uni.createFrom().item(Collections.nCopies(3, FakeFactory.newUser()));
+        });
+
+        List<User> users =
+            given()
+                .when()
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+                .get("/api/v1/users/reactive")
+                .then()
+                .statusCode(200)
+                .extract().body().as(new TypeRef<>() {})
+        ;
+
+        assertEquals(3, users.size());
+        assertTrue(onEventLoop.get());
+
+        verify(usersService, times(0)).getAllUsers(any());
     }
 
     @Test
@@ -159,7 +534,7 @@ class UsersResourceTests {
 
     @Test
     void testGetUserNotFound() throws Exception {
-        when(usersService.getUser(any(String.class)))
+        when(usersService.getUser(any(String.class), any()))
             .thenThrow(new JsonPlaceholderClient.JsonPlaceHolderRestException("User not found", 404))
         ;
 
@@ -174,12 +549,12 @@ class UsersResourceTests {
             .statusCode(404)
         ;
 
-        verify(usersService, times(1)).getUser(any(String.class));
+        verify(usersService, times(1)).getUser(any(String.class), any());
     }
 
     @Test
     void testGetUserJsonProcessingException() throws Exception {
-        when(usersService.getUser(any(String.class))).thenThrow(JsonProcessingException.class)
+        when(usersService.getUser(any(String.class), any())).thenThrow(JsonProcessingException.class)
         ;
 
         given()
@@ -193,7 +568,7 @@ class UsersResourceTests {
             .statusCode(500)
         ;
 
-        verify(usersService, times(1)).getUser(any(String.class));
+        verify(usersService, times(1)).getUser(any(String.class), any());
     }
 
     @Test
@@ -381,4 +756,167 @@ class UsersResourceTests {
 
         verify(usersService, times(1)).updateExistingUser(any(User.class));
     }
+
+    @Test
+    void testCreateUsers() throws Exception {
+        when(usersService.createNewUsers(anyList())).thenReturn(List.of(
+            BatchResult.success(0, "11", 201),
+            BatchResult.failure(1, null, 400, "User id must be left empty.")
+        ));
+
+        var resultString =
+            given()
+                .when()
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+                .body(List.of(FakeFactory.newUser(), FakeFactory.newUser("TEST_ID")))
+                .post("/api/v1/users")
+                .then()
+                .statusCode(200)
+                .extract().body().asString()
+        ;
+
+        List<BatchResult> results = mapper.readValue(resultString, new TypeReference<>() {});
+        assertEquals(List.of(201, 400), results.stream().map(BatchResult::getStatus).toList());
+
+        verify(usersService, times(1)).createNewUsers(anyList());
+    }
+
+    @Test
+    void testCreateUsersEmpty() {
+        given()
+            .when()
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .body(List.of())
+            .post("/api/v1/users")
+            .then()
+            .statusCode(400)
+        ;
+    }
+
+    @Test
+    void testCreateUsersWrongRole() {
+        given()
+            .when()
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("bob"))
+            .body(List.of(FakeFactory.newUser()))
+            .post("/api/v1/users")
+            .then()
+            .statusCode(403)
+        ;
+    }
+
+    @Test
+    void testUpdateUsers() throws Exception {
+        when(usersService.updateExistingUsers(anyList())).thenReturn(List.of(
+            BatchResult.success(0, "TEST_ID", 200),
+            BatchResult.failure(1, "MISSING_ID", 404, "User was not found.")
+        ));
+
+        var resultString =
+            given()
+                .when()
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+                .body(List.of(FakeFactory.newUser("TEST_ID"), FakeFactory.newUser("MISSING_ID")))
+                .patch("/api/v1/users")
+                .then()
+                .statusCode(200)
+                .extract().body().asString()
+        ;
+
+        List<BatchResult> results = mapper.readValue(resultString, new TypeReference<>() {});
+        assertEquals(List.of(200, 404), results.stream().map(BatchResult::getStatus).toList());
+
+        verify(usersService, times(1)).updateExistingUsers(anyList());
+    }
+
+    @Test
+    void testUpdateUsersUpstreamFailure() throws Exception {
+        when(usersService.updateExistingUsers(anyList()))
+            .thenThrow(new JsonPlaceholderClient.JsonPlaceHolderRestException("JsonPlaceholder is down.", 503))
+        ;
+
+        given()
+            .when()
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .body(List.of(FakeFactory.newUser("TEST_ID")))
+            .patch("/api/v1/users")
+            .then()
+            .statusCode(503)
+        ;
+    }
+
+    @Test
+    void testGetAllUsersNotModified() throws Exception {
+        when(usersService.getUsersETag()).thenReturn("1-HASH");
+
+        given()
+            .when()
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, "\"1-HASH\"")
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .get("/api/v1/users")
+            .then()
+            .statusCode(304)
+            .header(HttpHeaders.ETAG, "\"1-HASH\"")
+        ;
+
+        verify(usersService, times(0)).getAllUsers(any());
+    }
+
+    @Test
+    void testGetAllUsersETag() throws Exception {
+        when(usersService.getUsersETag()).thenReturn("2-HASH");
+        when(usersService.getAllUsers(any())).thenReturn(List.of(FakeFactory.newUser()));
+
+        given()
+            .when()
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, "\"1-HASH\"")
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .get("/api/v1/users")
+            .then()
+            .statusCode(200)
+            .header(HttpHeaders.ETAG, "\"2-HASH\"")
+        ;
+
+        verify(usersService, times(1)).getAllUsers(any());
+    }
+
+    @Test
+    void testGetUserNotModified() throws Exception {
+        when(usersService.getUserETag("TEST_ID")).thenReturn("mVERSION");
+
+        given()
+            .when()
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.IF_NONE_MATCH, "\"mVERSION\"")
+            .header("Authorization", "Bearer " + keycloakTestClient.getAccessToken("alice"))
+            .queryParam("id", "TEST_ID")
+            .get("/api/v1/user")
+            .then()
+            .statusCode(304)
+        ;
+
+        verify(usersService, times(0)).getUser(any(String.class), any());
+    }
+
+    @Test
+    void testAcceptsGzip() {
+        assertTrue(UsersResource.acceptsGzip("gzip, deflate"));
+        assertTrue(UsersResource.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+        assertTrue(UsersResource.acceptsGzip("*"));
+        assertFalse(UsersResource.acceptsGzip("gzip;q=0"));
+        assertFalse(UsersResource.acceptsGzip("deflate"));
+        assertFalse(UsersResource.acceptsGzip(null));
+    }
 }
@@ -0,0 +1,127 @@
+package com.personal.karpo666.showcase.resources;
+
+import com.personal.karpo666.showcase.FakeFactory;
+import com.personal.karpo666.showcase.TestContainerTestResource;
+import com.personal.karpo666.showcase.WireMockTestResource;
+import com.personal.karpo666.showcase.models.User;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.keycloak.client.KeycloakTestClient;
+import io.restassured.specification.RequestSpecification;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Every endpoint running on a virtual thread must release its carrier while it waits for mongodb or JsonPlaceholder.
+ * <p>
+ * The endpoints are called against a real mongodb and WireMock while JFR records every time a virtual thread blocks
+ * while pinned to its carrier, e.g. inside {@code synchronized}, including inside the mongodb driver. Any such event
+ * fails the test with its stack trace. Only runs on Java 21, the first version where the endpoints run on virtual
+ * threads.
+ */
+@QuarkusTest
+@TestProfile(VirtualThreadPinningTests.Profile.class)
+class VirtualThreadPinningTests {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    KeycloakTestClient keycloakTestClient = new KeycloakTestClient();
+
+    @Test
+    void testEndpointsDoNotPinVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "Endpoints only run on virtual threads on Java 21.");
+
+        String token = keycloakTestClient.getAccessToken("alice");
+        Path file = Files.createTempFile("virtual-thread-pinning", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            User created = request(token).body(newUser()).post("/api/v1/user")
+                .then().statusCode(201).extract().body().as(User.class);
+            created.setName("Pinning Test");
+            request(token).body(created).patch("/api/v1/user").then().statusCode(lessThan(300));
+            request(token).body(List.of(newUser(), newUser())).post("/api/v1/users").then().statusCode(lessThan(300));
+            request(token).body(List.of(created)).patch("/api/v1/users").then().statusCode(lessThan(300));
+
+            request(token).get("/api/v1/users").then().statusCode(200);
+            request(token).queryParam("limit", 5).get("/api/v1/users").then().statusCode(200);
+            request(token).queryParam("id", created.getUserId()).get("/api/v1/user").then().statusCode(200);
+            request(token).queryParam("id", "1").get("/api/v1/user").then().statusCode(200);
+            request(token).queryParam("city", FakeFactory.CITY).get("/api/v1/users/search").then().statusCode(200);
+            request(token).queryParam("prefix", "pin").get("/api/v1/users/autocomplete").then().statusCode(200);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> pinned = RecordingFile.readAllEvents(file).stream()
+            .filter(event -> PINNED_EVENT.equals(event.getEventType().getName()))
+            .toList()
+        ;
+        Files.deleteIfExists(file);
+
+        assertTrue(pinned.isEmpty(), () -> "Virtual threads were pinned:\n" + pinned.stream()
+            .map(VirtualThreadPinningTests::describe)
+            .collect(Collectors.joining("\n\n"))
+        );
+    }
+
+    private static RequestSpecification request(String token) {
+        return given()
+            .when()
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+            .header("Authorization", "Bearer " + token)
+        ;
+    }
+
+    private static User newUser() {
+        User user = FakeFactory.newUser();
+        user.setUserId(null);
+        return user;
+    }
+
+    private static String describe(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return event.toString();
+        }
+        return event.getStackTrace().getFrames().stream()
+            .map(RecordedFrame::getMethod)
+            .map(method -> "    at " + method.getType().getName() + "." + method.getName())
+            .collect(Collectors.joining("\n", "Pinned for " + event.getDuration().toMillis() + " ms\n", ""))
+        ;
+    }
+
+    /**
+     * Runs against mongodb and WireMock without injected faults, so every endpoint reaches both.
+     */
+    public static class Profile implements QuarkusTestProfile {
+
+        @Override
+        public List<TestResourceEntry> testResources() {
+            return List.of(
+                new TestResourceEntry(WireMockTestResource.class),
+                new TestResourceEntry(TestContainerTestResource.class)
+            );
+        }
+    }
+}
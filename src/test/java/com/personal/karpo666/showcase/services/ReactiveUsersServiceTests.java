@@ -0,0 +1,100 @@
+package com.personal.karpo666.showcase.services;
+
+import com.personal.karpo666.showcase.FakeFactory;
+import com.personal.karpo666.showcase.TestContainerTestResource;
+import com.personal.karpo666.showcase.clients.JsonPlaceholderClient;
+import com.personal.karpo666.showcase.clients.JsonPlaceholderUsersCache;
+import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserFields;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@QuarkusTest
+@QuarkusTestResource(value = TestContainerTestResource.class, restrictToAnnotatedClass = true)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReactiveUsersServiceTests {
+
+    @Inject
+    ReactiveUsersService reactiveUsersService;
+
+    @Inject
+    UsersService usersService;
+
+    @InjectMock
+    JsonPlaceholderUsersCache jsonPlaceholderUsers;
+
+    @Test
+    @Order(1)
+    void testGetUserFromMongo() throws Exception {
+        User created = usersService.createNewUser(FakeFactory.newUser());
+
+        User user = JsonPlaceholderClient.await(reactiveUsersService.getUser(created.getUserId(), null));
+
+        assertEquals(created.getUserId(), user.getUserId());
+        assertEquals(FakeFactory.CITY, user.getAddress().getCity());
+        verify(jsonPlaceholderUsers, times(0)).getUser(any());
+    }
+
+    @Test
+    @Order(2)
+    void testGetUserWithFields() throws Exception {
+        User user = JsonPlaceholderClient.await(reactiveUsersService.getUser("11", UserFields.parse("id,name")));
+
+        assertEquals("11", user.getUserId());
+        assertEquals(FakeFactory.NAME, user.getName());
+        assertNull(user.getAddress());
+    }
+
+    @Test
+    @Order(3)
+    void testGetUserFallbackToJsonPlaceholder() throws Exception {
+        when(jsonPlaceholderUsers.getUser("1000")).thenReturn(Uni.createFrom().item(FakeFactory.newUser("1000")));
+
+        User user = JsonPlaceholderClient.await(reactiveUsersService.getUser("1000", null));
+
+        assertEquals("1000", user.getUserId());
+        verify(jsonPlaceholderUsers, times(1)).getUser("1000");
+    }
+
+    @Test
+    @Order(4)
+    void testGetUserNotFound() {
+        when(jsonPlaceholderUsers.getUser("1001")).thenReturn(Uni.createFrom().failure(
+            new JsonPlaceholderClient.JsonPlaceHolderRestException("User with id: 1001 was not found in JsonPlaceholder.", 404)
+        ));
+
+        JsonPlaceholderClient.JsonPlaceHolderRestException e =
+            assertThrows(
+                JsonPlaceholderClient.JsonPlaceHolderRestException.class,
+                () -> JsonPlaceholderClient.await(reactiveUsersService.getUser("1001", null))
+            )
+        ;
+
+        assertEquals(404, e.getStatusCode());
+    }
+
+    @Test
+    @Order(5)
+    void testGetAllUsersMergesMongoAndJsonPlaceholder() throws Exception {
+        when(jsonPlaceholderUsers.getUsers()).thenReturn(Uni.createFrom().item(List.of(FakeFactory.newUser("1"), FakeFactory.newUser("11"))));
+
+        List<User> users = JsonPlaceholderClient.await(reactiveUsersService.getAllUsers(null));
+
+        // User 11 is saved in mongodb and overrides the JsonPlaceholder user with the same id.
+        assertEquals(List.of("11", "1"), users.stream().map(User::getUserId).toList());
+        assertNotNull(users.get(0).id);
+        assertNull(users.get(1).id);
+    }
+}
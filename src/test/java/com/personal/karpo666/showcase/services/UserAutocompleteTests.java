@@ -0,0 +1,169 @@
+package com.personal.karpo666.showcase.services;
+
+import com.personal.karpo666.showcase.FakeFactory;
+import com.personal.karpo666.showcase.TestContainerTestResource;
+import com.personal.karpo666.showcase.clients.JsonPlaceholderUsersCache;
+import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserSuggestion;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@QuarkusTest
+@QuarkusTestResource(value = TestContainerTestResource.class, restrictToAnnotatedClass = true)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class UserAutocompleteTests {
+
+    @Inject
+    UserAutocomplete autocomplete;
+
+    @Inject
+    UsersService usersService;
+
+    @Inject
+    MeterRegistry registry;
+
+    @InjectMock
+    JsonPlaceholderUsersCache jsonPlaceholderUsers;
+
+    @Test
+    @Order(1)
+    void testSuggestFromMongoAndJsonPlaceholder() throws Exception {
+        usersService.createNewUser(user(null, "Zelda Quokka", "zq"));
+        when(jsonPlaceholderUsers.getUsers()).thenReturn(Uni.createFrom().item(List.of(user("1", "Leanne Graham", "Bret"))));
+
+        assertEquals(List.of("Zelda Quokka"), names(autocomplete.suggest("QUO", 10)));
+        assertEquals(List.of("Leanne Graham"), names(autocomplete.suggest("gra", 10)));
+        assertEquals(List.of("Leanne Graham"), names(autocomplete.suggest("bre", 10)));
+        assertTrue(autocomplete.suggest("xyz", 10).isEmpty());
+    }
+
+    @Test
+    @Order(2)
+    void testCreatedUserIsSuggestedRightAway() throws Exception {
+        User created = usersService.createNewUser(user(null, "Quentin Blake", "qb"));
+
+        List<UserSuggestion> suggestions = autocomplete.suggest("qu", 10);
+        assertEquals(2, suggestions.size());
+        assertTrue(suggestions.stream().anyMatch(suggestion -> created.getUserId().equals(suggestion.getId())));
+        verify(jsonPlaceholderUsers, times(0)).getUsers();
+    }
+
+    @Test
+    @Order(3)
+    void testUpdatedUserIsReindexed() throws Exception {
+        var patch = new User();
+        patch.setUserId("1");
+        patch.setName("Leanne Zebra");
+        autocomplete.update(patch);
+
+        assertTrue(autocomplete.suggest("gra", 10).isEmpty());
+        List<UserSuggestion> suggestions = autocomplete.suggest("zeb", 10);
+        assertEquals(1, suggestions.size());
+        assertEquals("Bret", suggestions.get(0).getUsername());
+    }
+
+    @Test
+    @Order(4)
+    void testUpdatedUserNotIndexedIsReadFromMongo() throws Exception {
+
+        // Saved directly, like a user created on another instance after the index was built and then updated.
+        User saved = user("900", "Yvonne Okapi", "okapi");
+        saved.persist();
+
+        var patch = new User();
+        patch.setUserId("900");
+        patch.setUsername("okapi");
+        autocomplete.update(patch);
+
+        List<UserSuggestion> suggestions = autocomplete.suggest("yvonne", 10);
+        assertEquals(1, suggestions.size());
+        assertEquals("Yvonne Okapi", suggestions.get(0).getName());
+        assertEquals("okapi", suggestions.get(0).getUsername());
+    }
+
+    @Test
+    @Order(5)
+    void testLimitAndMemoryAreReported() throws Exception {
+        assertEquals(1, autocomplete.suggest("q", 1).size());
+        assertTrue(registry.get("users.autocomplete.users").gauge().value() >= 3);
+        assertTrue(registry.get("users.autocomplete.memory.per-user").gauge().value() > 0);
+    }
+
+    @Test
+    @Order(6)
+    void testUsersCreatedDuringRebuildsAreKept() throws Exception {
+        when(jsonPlaceholderUsers.getUsers()).thenReturn(Uni.createFrom().item(List.of(user("1", "Leanne Graham", "Bret"))));
+
+        int writers = 4;
+        int usersPerWriter = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            Future<?> rebuilds = executor.submit(() -> {
+                while (writing.get()) {
+                    autocomplete.rebuild();
+                }
+                return null;
+            });
+
+            List<Future<List<User>>> created = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                int first = writer * usersPerWriter;
+                created.add(executor.submit(() -> {
+                    List<User> users = new ArrayList<>();
+                    for (int i = first; i < first + usersPerWriter; i++) {
+                        users.add(usersService.createNewUser(user(null, "Race Condition", "racer" + i + "z")));
+                    }
+                    return users;
+                }));
+            }
+
+            List<User> users = new ArrayList<>();
+            for (Future<List<User>> future : created) {
+                users.addAll(future.get(60, TimeUnit.SECONDS));
+            }
+            writing.set(false);
+            rebuilds.get(60, TimeUnit.SECONDS);
+
+            // Every user must be found, no matter which index received the update.
+            for (User user : users) {
+                List<UserSuggestion> suggestions = autocomplete.suggest(user.getUsername(), 10);
+                assertEquals(1, suggestions.size(), user.getUsername());
+                assertEquals(user.getUserId(), suggestions.get(0).getId());
+            }
+        } finally {
+            writing.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    private static User user(String userId, String name, String username) {
+        User user = FakeFactory.newUser(userId);
+        user.setName(name);
+        user.setUsername(username);
+        return user;
+    }
+
+    private static List<String> names(List<UserSuggestion> suggestions) {
+        return suggestions.stream().map(UserSuggestion::getName).toList();
+    }
+}
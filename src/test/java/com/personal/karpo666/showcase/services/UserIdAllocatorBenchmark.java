@@ -0,0 +1,59 @@
+package com.personal.karpo666.showcase.services;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handing out user ids from reserved blocks, with and without contention.
+ * <p>
+ * The counter document is replaced with an in-memory counter, so only the allocator itself is measured. Kept next to
+ * {@link UserIdAllocator} because it overrides package-private methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserIdAllocatorBenchmark {
+
+    @Param({"20", "1000"})
+    int blockSize;
+
+    UserIdAllocator allocator;
+
+    @Setup
+    public void setup() {
+        allocator = new InMemoryUserIdAllocator();
+        allocator.blockSize = blockSize;
+    }
+
+    @Benchmark
+    public String nextId() {
+        return allocator.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String nextIdContended() {
+        return allocator.nextId();
+    }
+
+    @Benchmark
+    public List<String> nextIds() {
+        return allocator.nextIds(100);
+    }
+
+    private static class InMemoryUserIdAllocator extends UserIdAllocator {
+
+        private final AtomicLong counter = new AtomicLong(JP_USERS);
+
+        @Override
+        long incrementCounter(int size) {
+            return counter.addAndGet(size);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.personal.karpo666.showcase.services;
+
+import com.personal.karpo666.showcase.TestContainerTestResource;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+@QuarkusTestResource(value = TestContainerTestResource.class, restrictToAnnotatedClass = true)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class UserIdAllocatorTests {
+
+    @Inject
+    UserIdAllocator idAllocator;
+
+    @Test
+    @Order(1)
+    void testFirstIdFollowsJsonPlaceholderUsers() {
+        assertEquals(String.valueOf(UserIdAllocator.JP_USERS + 1), idAllocator.nextId());
+    }
+
+    @Test
+    @Order(2)
+    void testConcurrentAllocationsAreUnique() throws Exception {
+        int threads = 8;
+        int idsPerThread = 100;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = IntStream.range(0, threads).<Callable<Void>>mapToObj(i -> () -> {
+                for (int j = 0; j < idsPerThread; j++) {
+                    assertTrue(ids.add(idAllocator.nextId()));
+                }
+                return null;
+            }).toList();
+
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * idsPerThread, ids.size());
+    }
+
+    @Test
+    @Order(3)
+    void testNextIdsAreConsecutive() {
+        List<String> ids = idAllocator.nextIds(50);
+
+        assertEquals(50, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertEquals(Long.parseLong(ids.get(i - 1)) + 1, Long.parseLong(ids.get(i)));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.personal.karpo666.showcase.services;
+
+import com.mongodb.MongoException;
+import com.personal.karpo666.showcase.FakeFactory;
+import com.personal.karpo666.showcase.TestContainerTestResource;
+import com.personal.karpo666.showcase.models.IndexUsage;
+import com.personal.karpo666.showcase.models.User;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+@QuarkusTestResource(value = TestContainerTestResource.class, restrictToAnnotatedClass = true)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class UserIndexesTests {
+
+    @Inject
+    UserIndexes userIndexes;
+
+    @Test
+    @Order(1)
+    void testIndexesAreCreatedAtStartup() throws Exception {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!userIndexes.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        assertTrue(userIndexes.isReady());
+
+        given()
+            .when()
+            .get("/q/health/ready")
+            .then()
+            .statusCode(200)
+        ;
+    }
+
+    @Test
+    @Order(2)
+    void testGetIndexUsage() {
+        List<String> names = userIndexes.getIndexUsage().stream().map(IndexUsage::getName).toList();
+
+        assertTrue(names.contains(UserIndexes.USER_ID_UNIQUE));
+        assertTrue(names.contains(UserIndexes.USER_ID_NUMERIC));
+        assertTrue(names.contains("address.city" + UserIndexes.SEARCH_SUFFIX));
+        assertTrue(names.contains("company.name" + UserIndexes.SEARCH_SUFFIX));
+    }
+
+    @Test
+    @Order(3)
+    void testDuplicateUserIdsAreReportedWithoutRetrying() throws Exception {
+        User.mongoCollection().dropIndex(UserIndexes.USER_ID_UNIQUE);
+        FakeFactory.newUser("500").persist();
+        FakeFactory.newUser("500").persist();
+
+        userIndexes.ensureIndexes();
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (userIndexes.getFailure().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        assertFalse(userIndexes.isReady());
+        assertEquals(List.of("500"), userIndexes.getFailure().orElseThrow().duplicateUserIds());
+
+        given()
+            .when()
+            .get("/q/health/ready")
+            .then()
+            .statusCode(503)
+            .body("checks.find { it.name == 'users-indexes' }.data.failure", containsString("E11000"))
+            .body("checks.find { it.name == 'users-indexes' }.data.duplicateUserIds", equalTo("500"))
+        ;
+
+        // Once the duplicate is gone, the indexes can be created again.
+        User.delete("userId", "500");
+        userIndexes.ensureIndexes();
+        deadline = System.currentTimeMillis() + 30_000;
+        while (!userIndexes.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        assertTrue(userIndexes.isReady());
+        assertTrue(userIndexes.getFailure().isEmpty());
+    }
+
+    @Test
+    void testPermanentErrors() {
+        assertTrue(UserIndexes.isPermanent(new MongoException(11000, "E11000 duplicate key error")));
+        assertTrue(UserIndexes.isPermanent(new MongoException(85, "Index with name: userId_numeric already exists with different options")));
+        assertTrue(UserIndexes.isPermanent(new MongoException(86, "Index with name: userId_unique already exists with a different key")));
+        assertFalse(UserIndexes.isPermanent(new MongoException(6, "Host unreachable")));
+        assertFalse(UserIndexes.isPermanent(new IllegalStateException()));
+    }
+}
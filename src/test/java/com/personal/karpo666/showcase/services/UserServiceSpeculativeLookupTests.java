@@ -0,0 +1,99 @@
+package com.personal.karpo666.showcase.services;
+
+import com.mongodb.MongoException;
+import com.personal.karpo666.showcase.FakeFactory;
+import com.personal.karpo666.showcase.TestContainerTestResource;
+import com.personal.karpo666.showcase.clients.JsonPlaceholderUsersCache;
+import com.personal.karpo666.showcase.models.User;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectSpy;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * With users.speculative-upstream-lookup enabled, JsonPlaceholder is queried at the same time as mongodb.
+ */
+@QuarkusTest
+@QuarkusTestResource(value = TestContainerTestResource.class, restrictToAnnotatedClass = true)
+@TestProfile(UserServiceSpeculativeLookupTests.Profile.class)
+class UserServiceSpeculativeLookupTests {
+
+    @Inject
+    UsersService usersService;
+
+    @InjectMock
+    JsonPlaceholderUsersCache jsonPlaceholderUsers;
+
+    @InjectSpy
+    UsersMetrics metrics;
+
+    @Test
+    void testUpstreamLookupIsCancelledWhenUserIsFoundInMongo() throws Exception {
+        User created = usersService.createNewUser(FakeFactory.newUser());
+
+        // Never answers, so the user can only come from mongodb.
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(jsonPlaceholderUsers.getUser(created.getUserId()))
+            .thenReturn(Uni.createFrom().<User>nothing().onCancellation().invoke(() -> cancelled.set(true)));
+
+        User user = usersService.getUser(created.getUserId());
+
+        assertEquals(created.getUserId(), user.getUserId());
+        assertEquals(created.getEmail(), user.getEmail());
+        assertTrue(cancelled.get());
+        verify(jsonPlaceholderUsers, times(1)).getUser(created.getUserId());
+    }
+
+    @Test
+    void testRunningUpstreamLookupIsUsedWhenUserIsNotFoundInMongo() throws Exception {
+        final String userId = "1000";
+        User upstream = FakeFactory.newUser(userId);
+
+        AtomicInteger subscriptions = new AtomicInteger();
+        when(jsonPlaceholderUsers.getUser(userId))
+            .thenReturn(Uni.createFrom().item(upstream).onSubscription().invoke(subscriptions::incrementAndGet));
+
+        User user = usersService.getUser(userId);
+
+        assertEquals(upstream, user);
+
+        // The lookup started before mongodb was queried is awaited instead of starting a new one.
+        verify(jsonPlaceholderUsers, times(1)).getUser(userId);
+        assertEquals(1, subscriptions.get());
+    }
+
+    @Test
+    void testUpstreamLookupIsCancelledWhenMongoFails() {
+        final String userId = "1000";
+        doThrow(new MongoException("Mongodb is down")).when(metrics).mongo(eq("find-by-user-id"), any(Supplier.class));
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(jsonPlaceholderUsers.getUser(userId))
+            .thenReturn(Uni.createFrom().<User>nothing().onCancellation().invoke(() -> cancelled.set(true)));
+
+        assertThrows(MongoException.class, () -> usersService.getUser(userId));
+        assertTrue(cancelled.get());
+    }
+
+    public static class Profile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("users.speculative-upstream-lookup", "true");
+        }
+    }
+}
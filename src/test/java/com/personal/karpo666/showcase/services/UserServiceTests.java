@@ -3,18 +3,28 @@ package com.personal.karpo666.showcase.services;
 import com.personal.karpo666.showcase.FakeFactory;
 import com.personal.karpo666.showcase.TestContainerTestResource;
 import com.personal.karpo666.showcase.clients.JsonPlaceholderClient;
+import com.personal.karpo666.showcase.clients.JsonPlaceholderUsersCache;
+import com.personal.karpo666.showcase.models.BatchResult;
 import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserSearch;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,7 +39,7 @@ class UserServiceTests {
     UsersService usersService;
 
     @InjectMock
-    JsonPlaceholderClient client;
+    JsonPlaceholderUsersCache jsonPlaceholderUsers;
 
     @Test
     @Order(1)
@@ -51,19 +61,19 @@ class UserServiceTests {
 
         assertNotNull(user);
 
-        verify(client, times(0)).getUser(userId);
+        verify(jsonPlaceholderUsers, times(0)).getUser(userId);
     }
 
     @Test
     @Order(3)
     void testGetUserFallbackToClient() throws Exception {
         final String userId = "1000";
-        when(client.getUser(any(String.class))).thenReturn(FakeFactory.newUser());
+        when(jsonPlaceholderUsers.getUser(any(String.class))).thenReturn(Uni.createFrom().item(FakeFactory.newUser()));
 
         final User user = usersService.getUser(userId);
         assertNotNull(user);
 
-        verify(client, times(1)).getUser(userId);
+        verify(jsonPlaceholderUsers, times(1)).getUser(userId);
     }
 
     @Test
@@ -84,20 +94,20 @@ class UserServiceTests {
             () -> assertEquals(user.getWebsite(), updatedUser.getWebsite())
         );
 
-        verify(client, times(0)).getUser(userId);
+        verify(jsonPlaceholderUsers, times(0)).getUser(userId);
     }
 
     @Test
     @Order(5)
     void testGetAllUsers() throws Exception {
         int usersInJp = 10;
-        when(client.getUsers()).thenReturn(Collections.nCopies(usersInJp, FakeFactory.newUser()));
+        when(jsonPlaceholderUsers.getUsers()).thenReturn(Uni.createFrom().item(Collections.nCopies(usersInJp, FakeFactory.newUser())));
         List<User> allUsers = usersService.getAllUsers();
 
         assertNotNull(allUsers);
         assertEquals(usersInJp + User.listAll().size(), allUsers.size());
 
-        verify(client, times(1)).getUsers();
+        verify(jsonPlaceholderUsers, times(1)).getUsers();
     }
 
     @Test
@@ -105,7 +115,7 @@ class UserServiceTests {
     void testUpdateUserNotFoundInMongo() throws Exception {
         final String userId = "8";
         final String newUsername = "COOL_MAN_77";
-        when(client.getUser(userId)).thenReturn(FakeFactory.newUser(userId));
+        when(jsonPlaceholderUsers.getUser(userId)).thenReturn(Uni.createFrom().item(FakeFactory.newUser(userId)));
 
         var user = FakeFactory.newUserWithAdditionalInfo(userId);
         user.setUsername(newUsername);
@@ -119,6 +129,192 @@ class UserServiceTests {
         assertNotNull(updatedUser.getAdditionalInfo());
         assertEquals(FakeFactory.AMOUNT_OF_DOGS_THEY_HOPE_TO_OWN_ONE_DAY, updatedUser.getAdditionalInfo().getAmountOfDogsTheyHopeToOwnOneDay());
 
-        verify(client, times(1)).getUser(userId);
+        verify(jsonPlaceholderUsers, times(1)).getUser(userId);
+    }
+
+    @Test
+    @Order(7)
+    void testGetUsersPage() throws Exception {
+        List<User> upstreamUsers = IntStream.rangeClosed(1, 10).mapToObj(i -> FakeFactory.newUser(String.valueOf(i))).toList();
+        when(jsonPlaceholderUsers.getUsers()).thenReturn(Uni.createFrom().item(upstreamUsers));
+
+        var firstPage = usersService.getUsersPage(null, 5);
+        assertEquals(List.of("1", "2", "3", "4", "5"), firstPage.users().stream().map(User::getUserId).toList());
+        assertEquals("5", firstPage.next());
+
+        // User 8 is overridden in mongodb and user 11 only exists in mongodb.
+        var lastPage = usersService.getUsersPage("7", 5);
+        assertEquals(List.of("8", "9", "10", "11"), lastPage.users().stream().map(User::getUserId).toList());
+        assertEquals("COOL_MAN_77", lastPage.users().get(0).getUsername());
+        assertNull(lastPage.next());
+    }
+
+    @Test
+    @Order(7)
+    void testGetUsersPageLeavesOutNonNumericIds() throws Exception {
+        List<User> upstreamUsers = IntStream.rangeClosed(1, 10).mapToObj(i -> FakeFactory.newUser(String.valueOf(i))).collect(Collectors.toList());
+        upstreamUsers.add(FakeFactory.newUser("upstream-user"));
+        when(jsonPlaceholderUsers.getUsers()).thenReturn(Uni.createFrom().item(upstreamUsers));
+
+        // Saved directly, since created users always get a numeric id.
+        User saved = FakeFactory.newUser("legacy-user");
+        saved.persist();
+        try {
+            var page = usersService.getUsersPage("7", 10);
+            assertEquals(List.of("8", "9", "10", "11"), page.users().stream().map(User::getUserId).toList());
+            assertNull(page.next());
+        } finally {
+            saved.delete();
+        }
+    }
+
+    @Test
+    @Order(8)
+    void testStreamAllUsers() {
+        List<User> upstreamUsers = IntStream.rangeClosed(1, 10).mapToObj(i -> FakeFactory.newUser(String.valueOf(i))).toList();
+        when(jsonPlaceholderUsers.getUsers()).thenReturn(Uni.createFrom().item(upstreamUsers));
+
+        List<User> users = usersService.streamAllUsers().collect().asList().await().indefinitely();
+
+        // User 8 is overridden in mongodb and must appear only once.
+        assertEquals(10 + User.count() - 1, users.size());
+        assertEquals(1, users.stream().filter(user -> "8".equals(user.getUserId())).count());
+    }
+
+    @Test
+    @Order(9)
+    void testCreateNewUsers() {
+        List<User> users = Arrays.asList(FakeFactory.newUser(), FakeFactory.newUser("5"), FakeFactory.newUser());
+
+        List<BatchResult> results = usersService.createNewUsers(users);
+
+        assertEquals(3, results.size());
+        assertEquals(201, results.get(0).getStatus());
+        assertEquals("12", results.get(0).getId());
+        assertEquals(400, results.get(1).getStatus());
+        assertEquals(201, results.get(2).getStatus());
+        assertEquals("13", results.get(2).getId());
+        assertTrue(User.findByUserId("13").isPresent());
+    }
+
+    @Test
+    @Order(10)
+    void testUpdateExistingUsers() throws Exception {
+        List<User> upstreamUsers = IntStream.rangeClosed(1, 10).mapToObj(i -> FakeFactory.newUser(String.valueOf(i))).toList();
+        when(jsonPlaceholderUsers.getUsers()).thenReturn(Uni.createFrom().item(upstreamUsers));
+
+        final String newUsername = "BATCH_MAN";
+        User mongoUser = FakeFactory.newUser("12");
+        mongoUser.setUsername(newUsername);
+        User upstreamUser = FakeFactory.newUser("3");
+        upstreamUser.setUsername(newUsername);
+
+        List<BatchResult> results = usersService.updateExistingUsers(Arrays.asList(
+            mongoUser,
+            upstreamUser,
+            FakeFactory.newUser("999"),
+            FakeFactory.newUser(),
+            FakeFactory.newUser("12")
+        ));
+
+        assertEquals(List.of(200, 200, 404, 400, 400), results.stream().map(BatchResult::getStatus).toList());
+        assertEquals(newUsername, User.findByUserId("12").orElseThrow().getUsername());
+        assertEquals(newUsername, User.findByUserId("3").orElseThrow().getUsername());
+        assertEquals(1, User.count("userId", "12"));
+    }
+
+    @Test
+    @Order(11)
+    void testETagsChangeOnWrite() throws Exception {
+        when(jsonPlaceholderUsers.getUsersETag()).thenReturn(Uni.createFrom().item("HASH"));
+
+        final String userId = "12";
+        String usersETag = usersService.getUsersETag();
+        String userETag = usersService.getUserETag(userId);
+        assertNotNull(userETag);
+
+        var user = FakeFactory.newUser(userId);
+        user.setUsername("ETAG_MAN");
+        usersService.updateExistingUser(user);
+
+        assertNotEquals(usersETag, usersService.getUsersETag());
+        assertNotEquals(userETag, usersService.getUserETag(userId));
+        verify(jsonPlaceholderUsers, times(0)).getUserETag(userId);
+    }
+
+    @Test
+    @Order(12)
+    void testUpdateUserOnlyChangesGivenFields() throws Exception {
+        final String userId = "11";
+        final String newWebsite = "HTTPS://PATCHED.GOV";
+        final String username = usersService.getUser(userId).getUsername();
+
+        var patch = new User();
+        patch.setUserId(userId);
+        patch.setWebsite(newWebsite);
+        usersService.updateExistingUser(patch);
+
+        final User updatedUser = usersService.getUser(userId);
+        assertEquals(newWebsite, updatedUser.getWebsite());
+        assertAll("Verifying that fields left out were not changed.",
+            () -> assertEquals(username, updatedUser.getUsername()),
+            () -> assertEquals(FakeFactory.CITY, updatedUser.getAddress().getCity())
+        );
+    }
+
+    @Test
+    @Order(13)
+    void testUpdateUserSeededFromCachedUpstreamUser() throws Exception {
+        final String userId = "5";
+        final String newCity = "PATCHVILLE";
+        when(jsonPlaceholderUsers.peek()).thenReturn(Optional.of(Map.of(userId, FakeFactory.newUser(userId))));
+
+        var patch = new User();
+        patch.setUserId(userId);
+        patch.setAddress(new User.Address());
+        patch.getAddress().setCity(newCity);
+        usersService.updateExistingUser(patch);
+
+        final User updatedUser = User.findByUserId(userId).orElseThrow();
+        assertEquals(newCity, updatedUser.getAddress().getCity());
+        assertAll("Verifying that the rest of the user was seeded from JsonPlaceholder.",
+            () -> assertEquals(FakeFactory.STREET, updatedUser.getAddress().getStreet()),
+            () -> assertEquals(FakeFactory.USERNAME, updatedUser.getUsername())
+        );
+
+        verify(jsonPlaceholderUsers, times(0)).getUser(userId);
+    }
+
+    @Test
+    @Order(14)
+    void testUpdateUserNotFoundInCachedUpstreamUsers() {
+        when(jsonPlaceholderUsers.peek()).thenReturn(Optional.of(Map.of()));
+
+        var patch = FakeFactory.newUser("404");
+        var e = assertThrows(JsonPlaceholderClient.JsonPlaceHolderRestException.class, () -> usersService.updateExistingUser(patch));
+
+        assertEquals(404, e.getStatusCode());
+        assertTrue(User.findByUserId("404").isEmpty());
+        verify(jsonPlaceholderUsers, times(0)).getUser("404");
+    }
+
+    @Test
+    @Order(15)
+    void testSearchUsers() throws Exception {
+        final String username = "COOL_MAN_77";
+        User upstreamOnly = FakeFactory.newUser("20");
+        upstreamOnly.setUsername(username);
+        User overridden = FakeFactory.newUser("8");
+        overridden.setUsername(username);
+        User overriddenNotMatching = FakeFactory.newUser("3");
+        overriddenNotMatching.setUsername(username);
+        when(jsonPlaceholderUsers.search(any())).thenReturn(Uni.createFrom().item(List.of(overridden, overriddenNotMatching, upstreamOnly)));
+
+        List<User> users = usersService.searchUsers(UserSearch.of(username.toLowerCase(), null, null, null), 100);
+
+        // Users 8 and 11 are saved in mongodb. User 3 is saved in mongodb with another username.
+        assertEquals(Set.of("8", "11", "20"), users.stream().map(User::getUserId).collect(Collectors.toSet()));
+        assertEquals(3, users.size());
+        assertEquals("20", users.get(2).getUserId());
     }
 }
@@ -0,0 +1,65 @@
+package com.personal.karpo666.showcase.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsersMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private UsersMetrics metrics;
+
+    @BeforeEach
+    void init() {
+        metrics = new UsersMetrics();
+        metrics.registry = registry;
+        metrics.tracer = OpenTelemetry.noop().getTracer("test");
+    }
+
+    @Test
+    void testMongoOperationsAreTimedPerOperation() {
+        assertEquals("RESULT", metrics.mongo("find", () -> "RESULT"));
+        metrics.mongo("find", () -> "RESULT");
+        metrics.mongo("persist", () -> {});
+
+        assertEquals(2, registry.get("users.mongodb.operations").tag("operation", "find").timer().count());
+        assertEquals(1, registry.get("users.mongodb.operations").tag("operation", "persist").timer().count());
+    }
+
+    @Test
+    void testMergeSizesAreRecordedPerSource() {
+        List<String> merged = metrics.merge("merge", 3, 2, () -> List.of("1", "2", "3", "4"));
+
+        assertEquals(4, merged.size());
+        assertEquals(1, registry.get("users.merge").tag("operation", "merge").timer().count());
+        assertEquals(3, registry.get("users.merge.size").tags("operation", "merge", "source", "mongodb").summary().totalAmount());
+        assertEquals(2, registry.get("users.merge.size").tags("operation", "merge", "source", "jsonplaceholder").summary().totalAmount());
+        assertEquals(4, registry.get("users.merge.size").tags("operation", "merge", "source", "result").summary().totalAmount());
+    }
+
+    @Test
+    void testUpstreamWaitIsTimed() {
+        try (var ignored = metrics.startUpstreamWait("get-all-users")) {
+            assertEquals(0, registry.get("users.upstream.wait").tag("operation", "get-all-users").timer().count());
+        }
+
+        assertEquals(1, registry.get("users.upstream.wait").tag("operation", "get-all-users").timer().count());
+    }
+
+    @Test
+    void testUpstreamErrorsAreCountedPerStatus() {
+        metrics.upstreamError(404);
+        metrics.upstreamError(404);
+        metrics.upstreamError(503);
+
+        assertEquals(2, registry.get("jsonplaceholder.errors").tag("status", "404").counter().count());
+        assertEquals(1, registry.get("jsonplaceholder.errors").tag("status", "503").counter().count());
+        assertEquals(2, registry.find("jsonplaceholder.errors").counters().size());
+    }
+}
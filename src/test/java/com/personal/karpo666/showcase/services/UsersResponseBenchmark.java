@@ -0,0 +1,63 @@
+package com.personal.karpo666.showcase.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personal.karpo666.showcase.FakeFactory;
+import com.personal.karpo666.showcase.models.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.runtime.configuration.MemorySize;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Building the body of a users response, serialized on every request or served from {@link UsersResponseCache}.
+ * <p>
+ * Kept next to {@link UsersResponseCache} because it sets its package-private config.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsersResponseBenchmark {
+
+    private static final String ETAG = "1-hash";
+
+    @Param({"10", "1000"})
+    int users;
+
+    @Param({"false", "true"})
+    boolean gzip;
+
+    UsersResponseCache cache;
+    List<User> userList;
+
+    @Setup
+    public void setup() {
+        cache = new UsersResponseCache();
+        cache.mapper = new ObjectMapper();
+        cache.registry = new SimpleMeterRegistry();
+        cache.maxSize = new MemorySize(BigInteger.valueOf(64L * 1024 * 1024));
+        cache.gzipMinSize = new MemorySize(BigInteger.valueOf(1024));
+        cache.init();
+
+        userList = IntStream.rangeClosed(1, users)
+            .mapToObj(i -> FakeFactory.newUserWithAdditionalInfo(String.valueOf(i)))
+            .toList();
+    }
+
+    @Benchmark
+    public byte[] serialized() throws Exception {
+        // Without an ETag nothing is cached, so the users are serialized every time.
+        return cache.getUsers(null, gzip, () -> userList).body(gzip);
+    }
+
+    @Benchmark
+    public byte[] cached() throws Exception {
+        return cache.getUsers(ETAG, gzip, () -> userList).body(gzip);
+    }
+}
@@ -0,0 +1,100 @@
+package com.personal.karpo666.showcase.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personal.karpo666.showcase.FakeFactory;
+import com.personal.karpo666.showcase.models.User;
+import com.personal.karpo666.showcase.models.UserFields;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class UsersResponseCacheTests {
+
+    @Inject
+    UsersResponseCache responseCache;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Test
+    void testUserIsSerializedOncePerETag() throws Exception {
+        final String userId = "CACHED_USER";
+        AtomicInteger loads = new AtomicInteger();
+        UsersResponseCache.Loader<User> loader = () -> {
+            loads.incrementAndGet();
+            return FakeFactory.newUser(userId);
+        };
+
+        var first = responseCache.getUser(userId, "v1", false, loader);
+        var second = responseCache.getUser(userId, "v1", false, loader);
+        assertEquals(1, loads.get());
+        assertSame(first.json(), second.json());
+        assertEquals(userId, mapper.readValue(first.json(), User.class).getUserId());
+
+        // A new ETag means the user has changed.
+        responseCache.getUser(userId, "v2", false, loader);
+        assertEquals(2, loads.get());
+
+        // Writes drop the entry.
+        responseCache.invalidateUser(userId);
+        responseCache.getUser(userId, "v2", false, loader);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testNothingIsCachedWithoutETag() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        UsersResponseCache.Loader<User> loader = () -> {
+            loads.incrementAndGet();
+            return FakeFactory.newUser("UNTAGGED_USER");
+        };
+
+        responseCache.getUser("UNTAGGED_USER", null, false, loader);
+        responseCache.getUser("UNTAGGED_USER", null, false, loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testUsersAreCompressed() throws Exception {
+        List<User> users = Collections.nCopies(100, FakeFactory.newUser("1"));
+
+        var representation = responseCache.getUsers("GZIP-ETAG", true, () -> users);
+
+        assertTrue(representation.compressed(true));
+        assertFalse(representation.compressed(false));
+        assertTrue(representation.gzip().length < representation.json().length);
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(representation.body(true)))) {
+            List<User> decompressed = mapper.readValue(in, new TypeReference<>() {});
+            assertEquals(100, decompressed.size());
+        }
+    }
+
+    @Test
+    void testFieldsAreCachedSeparately() throws Exception {
+        final String userId = "FIELDS_USER";
+        UsersResponseCache.Loader<User> loader = () -> FakeFactory.newUser(userId);
+
+        var full = responseCache.getUser(userId, "v1", false, loader);
+        var partial = responseCache.getUser(userId, "v1", UserFields.parse("name,address.city"), false, loader);
+
+        JsonNode fullJson = mapper.readTree(full.json());
+        JsonNode partialJson = mapper.readTree(partial.json());
+        assertEquals(userId, fullJson.get("id").asText());
+        assertEquals(2, partialJson.size());
+        assertEquals(FakeFactory.NAME, partialJson.get("name").asText());
+        assertEquals(1, partialJson.get("address").size());
+        assertEquals(FakeFactory.CITY, partialJson.get("address").get("city").asText());
+    }
+}